@@ -0,0 +1,116 @@
+package anticope.esixtwoone.cache;
+
+import anticope.esixtwoone.sources.Downscaler;
+import anticope.esixtwoone.sources.GifCorpus;
+import anticope.esixtwoone.sources.GifDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * What {@link FrameCache} saves on a replay: decoding and reducing every frame of a GIF
+ * ({@code cold}) against inflating the stored frames from a warm cache entry ({@code warm}).
+ * {@code animation} GIFs redraw the whole frame, {@code sprite} ones move a square over a
+ * fixed background, which is where the XOR-then-deflate container pays off. The cache lives
+ * in a temp directory for the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameCacheBenchmark {
+    private static final String URL = "https://static1.e621.net/data/bench.gif";
+
+    @Param({"1", "2"})
+    public int reduction;
+
+    @Param({"30"})
+    public int frames;
+
+    @Param({"animation", "sprite"})
+    public String content;
+
+    private byte[] gif;
+    private Path dir;
+    private FrameCache cache;
+    private int frameWidth;
+    private int frameHeight;
+
+    @Setup
+    public void setup() throws IOException {
+        gif = content.equals("sprite") ? GifCorpus.sprite(480, 360, frames) : GifCorpus.animation(480, 360, frames);
+        dir = Files.createTempDirectory("frame-cache-bench");
+        cache = new FrameCache(dir);
+
+        GifDecoder decoder = new GifDecoder(new ByteArrayInputStream(gif));
+        frameWidth = Math.max(1, decoder.getWidth() / reduction);
+        frameHeight = Math.max(1, decoder.getHeight() / reduction);
+        Downscaler scaler = scaler(decoder);
+        try (FrameCache.Writer writer = cache.create(URL, reduction, frameWidth, frameHeight)) {
+            while (decoder.advance()) {
+                writer.addFrame(reduce(decoder, scaler), decoder.getDelay());
+            }
+            writer.commit();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void cold(Blackhole blackhole) throws IOException {
+        GifDecoder decoder = new GifDecoder(new ByteArrayInputStream(gif));
+        Downscaler scaler = scaler(decoder);
+        while (decoder.advance()) {
+            blackhole.consume(reduce(decoder, scaler));
+            blackhole.consume(decoder.getDelay());
+        }
+    }
+
+    @Benchmark
+    public void warm(Blackhole blackhole) throws IOException {
+        try (FrameCache.Reader reader = cache.open(URL, reduction)) {
+            int[] frame = new int[frameWidth * frameHeight];
+            for (int i = 0; i < reader.getFrameCount(); i++) {
+                reader.readFrame(frame);
+                blackhole.consume(frame);
+                blackhole.consume(reader.getDelay(i));
+            }
+        }
+    }
+
+    /** The box filter GifPlayer reduces frames with, or null at full size. */
+    private Downscaler scaler(GifDecoder decoder) {
+        if (reduction <= 1) return null;
+        return new Downscaler(Math.min(decoder.getWidth(), frameWidth * reduction),
+            Math.min(decoder.getHeight(), frameHeight * reduction), frameWidth, frameHeight);
+    }
+
+    private static int[] reduce(GifDecoder decoder, Downscaler scaler) {
+        return scaler != null ? scaler.downscale(decoder.getCanvas(), decoder.getWidth()) : decoder.getCanvas();
+    }
+}
@@ -0,0 +1,80 @@
+package anticope.esixtwoone.sources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One GIF frame reduced by {@link Downscaler} against the {@code getScaledInstance(SCALE_SMOOTH)}
+ * drawn into a fresh image that GifPlayer used before. {@code divisor} 1.5 takes the fractional
+ * area path static images use; whole divisors take the box path, and 1 is the full-size frame
+ * GifPlayer no longer scales at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownscaleBenchmark {
+    private static final int WIDTH = 500;
+    private static final int HEIGHT = 400;
+
+    @Param({"1", "2", "4", "1.5"})
+    public double divisor;
+
+    private int[] argb;
+    private BufferedImage image;
+    private Downscaler scaler;
+    private int targetWidth;
+    private int targetHeight;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(WIDTH);
+        argb = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < argb.length; i++) {
+            // a third of the pixels transparent or translucent, like sticker-style GIFs
+            int alpha = switch (random.nextInt(6)) {
+                case 0 -> 0;
+                case 1 -> 0x80;
+                default -> 0xFF;
+            };
+            argb[i] = alpha << 24 | random.nextInt(0x1000000);
+        }
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, WIDTH, HEIGHT, argb, 0, WIDTH);
+
+        targetWidth = (int) (WIDTH / divisor);
+        targetHeight = (int) (HEIGHT / divisor);
+        scaler = new Downscaler(WIDTH, HEIGHT, targetWidth, targetHeight);
+    }
+
+    @Benchmark
+    public int[] downscaler() {
+        return scaler.downscale(argb, WIDTH);
+    }
+
+    @Benchmark
+    public BufferedImage scaledInstance() {
+        BufferedImage resized = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = resized.createGraphics();
+        graphics.drawImage(image.getScaledInstance(targetWidth, targetHeight, Image.SCALE_SMOOTH), 0, 0, null);
+        graphics.dispose();
+        return resized;
+    }
+}
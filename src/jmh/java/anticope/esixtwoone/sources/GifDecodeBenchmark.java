@@ -0,0 +1,94 @@
+package anticope.esixtwoone.sources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GifDecoder} against the ImageIO reading it replaced: {@code getNumImages(true)}, then
+ * {@code read(i)} and a metadata tree walk for the delay of every frame. ImageIO hands back raw
+ * frames, so its side does less work than the composited canvas the decoder produces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GifDecodeBenchmark {
+    @Param({"480x360"})
+    public String size;
+
+    @Param({"40"})
+    public int frames;
+
+    private byte[] gif;
+
+    @Setup
+    public void setup() {
+        String[] dimensions = size.split("x");
+        gif = GifCorpus.animation(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), frames);
+    }
+
+    @Benchmark
+    public void decoder(Blackhole blackhole) throws IOException {
+        GifDecoder decoder = new GifDecoder(new ByteArrayInputStream(gif));
+        while (decoder.advance()) {
+            blackhole.consume(decoder.getCanvas());
+            blackhole.consume(decoder.getDelay());
+        }
+    }
+
+    @Benchmark
+    public void imageIo(Blackhole blackhole) throws IOException {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(gif))) {
+            reader.setInput(in, false, false);
+            int count = reader.getNumImages(true);
+            for (int i = 0; i < count; i++) {
+                blackhole.consume(reader.read(i));
+                IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+                for (int j = 0; j < root.getLength(); j++) {
+                    if (root.item(j) instanceof IIOMetadataNode node && node.getNodeName().equals("GraphicControlExtension")) {
+                        blackhole.consume(node.getAttribute("delayTime"));
+                    }
+                }
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Benchmark
+    public int countFrames() throws IOException {
+        return GifDecoder.countFrames(gif);
+    }
+
+    @Benchmark
+    public int imageIoCountFrames() throws IOException {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(gif))) {
+            reader.setInput(in, false, false);
+            return reader.getNumImages(true);
+        } finally {
+            reader.dispose();
+        }
+    }
+}
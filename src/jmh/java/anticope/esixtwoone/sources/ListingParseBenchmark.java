@@ -0,0 +1,50 @@
+package anticope.esixtwoone.sources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a 320-post e621 page: {@link ESixTwoOne}'s streaming parse against the full Gson tree
+ * it replaced. The page is a {@link ListingCorpus} one, not a captured response. Run with
+ * {@code -prof gc} for the bytes allocated per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingParseBenchmark {
+    @Param({"sample"})
+    public Source.Size size;
+
+    private byte[] page;
+
+    @Setup
+    public void setup() {
+        page = ListingCorpus.e621Page(320, 320);
+    }
+
+    @Benchmark
+    public List<Post> streaming() throws IOException {
+        return ListingCorpus.streamPosts(page, size);
+    }
+
+    @Benchmark
+    public List<String> gsonTree() {
+        return ListingCorpus.treeUrls(page, size);
+    }
+}
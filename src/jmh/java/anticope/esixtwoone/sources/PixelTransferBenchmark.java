@@ -0,0 +1,76 @@
+package anticope.esixtwoone.sources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting a decoded {@link BufferedImage} into ARGB pixels: {@link PixelTransfer}'s raster copy
+ * against the PNG encode and decode it replaced. The PNG side reads back through ImageIO rather
+ * than {@code NativeImage.read}, which needs the game's natives, so it slightly understates the
+ * old cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PixelTransferBenchmark {
+    private static final int WIDTH = 500;
+    private static final int HEIGHT = 400;
+
+    /** The raster layouts ImageIO hands back for GIF, PNG with alpha and JPEG. */
+    @Param({"indexed", "abgr", "bgr"})
+    public String layout;
+
+    private BufferedImage image;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        int type = switch (layout) {
+            case "indexed" -> BufferedImage.TYPE_BYTE_INDEXED;
+            case "abgr" -> BufferedImage.TYPE_4BYTE_ABGR;
+            default -> BufferedImage.TYPE_3BYTE_BGR;
+        };
+        image = new BufferedImage(WIDTH, HEIGHT, type);
+        Random random = new Random(WIDTH);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+            }
+        }
+        pixels = new int[WIDTH * HEIGHT];
+    }
+
+    @Benchmark
+    public int[] rasterCopy() {
+        PixelTransfer.copy(image, (x, y, argb) -> pixels[y * WIDTH + x] = argb);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] pngRoundTrip() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+        return decoded.getRGB(0, 0, WIDTH, HEIGHT, pixels, 0, WIDTH);
+    }
+}
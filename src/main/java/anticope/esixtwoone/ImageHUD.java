@@ -1,6 +1,8 @@
 package anticope.esixtwoone;
 
 import meteordevelopment.meteorclient.MeteorClient;
+import meteordevelopment.meteorclient.renderer.GL;
+import meteordevelopment.meteorclient.renderer.Renderer2D;
 import meteordevelopment.meteorclient.settings.*;
 import meteordevelopment.meteorclient.systems.hud.*;
 import meteordevelopment.meteorclient.utils.network.Http;
@@ -8,58 +10,113 @@ import meteordevelopment.meteorclient.utils.render.color.Color;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.ingame.*;
 import net.minecraft.client.texture.NativeImage;
-import net.minecraft.client.texture.NativeImageBackedTexture;
 import net.minecraft.util.Identifier;
-import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
+import anticope.esixtwoone.cache.FrameCache;
+import anticope.esixtwoone.cache.ListingCache;
+import anticope.esixtwoone.cache.MediaCache;
 import anticope.esixtwoone.sources.*;
 
-import javax.imageio.ImageIO;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class ImageHUD extends HudElement {
     public static final HudElementInfo<ImageHUD> INFO = new HudElementInfo<>(Hud.GROUP, "e621-image", "Displays images from various sources", ImageHUD::new);
 
     // Texture and rendering
-    private static final Identifier TEXID = Identifier.of("meteor-client", "e621-image");
-    private NativeImageBackedTexture staticTexture;
+    private StaticTexture staticTexture;
+    private int textureSerial;
+    // what is on screen, so it can be kept for reuse once something replaces it
+    private String shownUrl;
+    private int shownReduction = 1;
     private GifPlayer gifPlayer;
     private double aspectRatio = 1.0;
     
     // Loading state
     private boolean isLoading;
     private String currentUrl;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final WorkScheduler work = new WorkScheduler("e621");
+    // a streamed GIF only refills its ring while it plays, so its decoding is on-screen work
+    private final Executor streamFills = work.executor(WorkScheduler.Priority.VISIBLE);
+    // advanced whenever the query changes; work started under an older token is dropped
+    private final Generation generation = new Generation();
     
     // Image management
-    private final List<String> cachedImageUrls = new ArrayList<>();
+    // appended to by the listing fetch as posts arrive; currentImageIndex is a position in it
+    private final PostIndex playlist = new PostIndex();
+    // throughput of media downloads, for the auto size
+    private final BandwidthMeter bandwidth = new BandwidthMeter();
+    private volatile Post.Variant lastAutoVariant;
     private int currentImageIndex = 0;
     private long lastCycleTime;
     private boolean needsNewFetch = true;
     private String lastTags = "";
     
     // Pagination
-    private int currentPage = 1;
+    private volatile PostStream postStream; // the listing for the current query, pulled as the lookahead needs it
+    private volatile boolean isFetching;
     private boolean hasMorePages = true;
-    private final Object fetchLock = new Object();
+    // only held for state changes, never across a network read
+    private final ReentrantLock fetchLock = new ReentrantLock();
     
     // GIF preloading
-    private final Queue<CompletableFuture<GifPlayer>> preloadQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<CompletableFuture<Object>> preloadQueue = new ConcurrentLinkedQueue<>();
     private final Map<String, GifPlayer> preloadedGifs = new ConcurrentHashMap<>();
+    private final Map<String, StaticTexture> preloadedStatics = new ConcurrentHashMap<>();
     private volatile int activePreloads = 0;
     private final Object preloadLock = new Object();
 
+    // Work shared between concurrent requests for the same URL
+    private final SingleFlight<String, byte[]> mediaFlights = new SingleFlight<>();
+    private final SingleFlight<String, Object> preloadFlights = new SingleFlight<>();
+    private final Map<String, UploadScheduler.Job> preloadUploads = new HashMap<>(); // render thread only
+    // lanes of running preloads, so one the user skips to stops yielding to other work
+    private final Map<String, WorkScheduler.Lane> preloadLanes = new ConcurrentHashMap<>();
+    // images already shown, kept on the GPU for looping playlists
+    private final DecodedCache<Object> recent = new DecodedCache<>(128L * 1024L * 1024L, this::releaseRecent);
+
     // System monitoring
-    private volatile double lastVramUsage = 0;
+    private final TextureBudget textureBudget = new TextureBudget();
+    private final UploadScheduler uploads = new UploadScheduler();
     private volatile double lastMemoryUsage = 0;
     private long lastSystemCheckTime = 0;
+
+    // Render-thread cost of GIF loads, summed over the frames their uploads were spread across
+    private volatile double lastGifDecodeMs = 0;
+    private double lastGifUploadMs = 0;
+    private double maxGifUploadMs = 0;
+    private double totalGifUploadMs = 0;
+    private int gifUploadCount = 0;
+
+    // Time from starting a GIF load to its first frame on screen, split by frame cache tier
+    private double lastFirstFrameMs = 0;
+    private boolean lastFirstFrameWarm = false;
+    private double coldFirstFrameMs = 0;
+    private int coldFirstFrameCount = 0;
+    private double warmFirstFrameMs = 0;
+    private int warmFirstFrameCount = 0;
     
+    // Static images are decoded at display size and lazily re-decoded after a resize settles
+    private static final long RESIZE_DEBOUNCE_MS = 500;
+    private int staticTextureWidth, staticTextureHeight;
+    private int staticSourceWidth, staticSourceHeight;
+    private long lastResizeTime;
+    private boolean resizePending;
+
     // Pause state
     private boolean paused = false;
     private boolean wasPaused = false;
+
+    // While paused, textures are kept (hibernated) and only torn down after an idle timeout
+    private long hibernatedAt;
+    private int hibernation;
+    private boolean tornDown;
     private final MinecraftClient mc = MinecraftClient.getInstance();
 
     // Settings
@@ -70,7 +127,7 @@ public class ImageHUD extends HudElement {
         .defaultValue(328.0)
         .min(50.0)
         .sliderRange(50.0, 1000.0)
-        .onChanged(val -> updateSize())
+        .onChanged(val -> onResized())
         .build()
     );
     private final Setting<Double> height = sgGeneral.add(new DoubleSetting.Builder()
@@ -79,7 +136,7 @@ public class ImageHUD extends HudElement {
         .defaultValue(0.0)
         .min(0.0)
         .sliderRange(0.0, 1000.0)
-        .onChanged(val -> updateSize())
+        .onChanged(val -> onResized())
         .build()
     );
     private final Setting<String> tags = sgGeneral.add(new StringSetting.Builder()
@@ -96,7 +153,7 @@ public class ImageHUD extends HudElement {
     );
     private final Setting<Source.Size> size = sgGeneral.add(new EnumSetting.Builder<Source.Size>()
         .name("size")
-        .description("Image size quality")
+        .description("Image size quality; auto picks per post from the HUD size and measured bandwidth")
         .defaultValue(Source.Size.file)
         .onChanged(val -> forceReload())
         .build()
@@ -129,9 +186,25 @@ public class ImageHUD extends HudElement {
         .defaultValue(false)
         .build()
     );
+    private final Setting<Integer> textureBudgetMb = sgGeneral.add(new IntSetting.Builder()
+        .name("texture-budget")
+        .description("Texture memory in MB the HUD may hold; preloads are evicted beyond it")
+        .defaultValue(256)
+        .min(16)
+        .sliderRange(32, 2048)
+        .build()
+    );
+    private final Setting<Double> uploadBudget = sgGeneral.add(new DoubleSetting.Builder()
+        .name("upload-budget")
+        .description("Milliseconds per frame spent uploading textures; large images are spread over several frames")
+        .defaultValue(2.0)
+        .min(0.25)
+        .sliderRange(0.5, 8.0)
+        .build()
+    );
     private final Setting<Double> maxVramUsage = sgGeneral.add(new DoubleSetting.Builder()
         .name("max-vram-usage")
-        .description("Maximum VRAM usage percentage (0 to disable)")
+        .description("Reduce quality once this percentage of the texture budget is used (0 to disable)")
         .defaultValue(70.0)
         .min(0)
         .max(100)
@@ -153,6 +226,15 @@ public class ImageHUD extends HudElement {
         .sliderRange(1, 5)
         .build()
     );
+    private final Setting<Integer> lookahead = sgGeneral.add(new IntSetting.Builder()
+        .name("lookahead")
+        .description("Upcoming images of any type to download and decode ahead of time, within the texture budget")
+        .defaultValue(3)
+        .min(1)
+        .max(20)
+        .sliderRange(1, 10)
+        .build()
+    );
     private final Setting<Boolean> prioritizeStatic = sgGeneral.add(new BoolSetting.Builder()
         .name("prioritize-static")
         .description("Prioritize static images over GIFs when resource constrained")
@@ -160,9 +242,94 @@ public class ImageHUD extends HudElement {
         .build()
     );
 
+    private final SettingGroup sgPause = settings.createGroup("Pause");
+    private final Setting<Integer> hibernateTimeout = sgPause.add(new IntSetting.Builder()
+        .name("hibernate-timeout")
+        .description("Seconds to keep images loaded while paused (chat, menus, unfocused) before freeing them; 0 frees at once")
+        .defaultValue(120)
+        .min(0)
+        .sliderRange(0, 600)
+        .build()
+    );
+    private final Setting<Integer> hibernateMemory = sgPause.add(new IntSetting.Builder()
+        .name("hibernate-memory")
+        .description("Texture memory in MB kept while paused; preloads beyond it are dropped, the current image is always kept")
+        .defaultValue(128)
+        .min(0)
+        .sliderRange(0, 1024)
+        .build()
+    );
+
+    private final SettingGroup sgCache = settings.createGroup("Cache");
+    private final Setting<Boolean> diskCache = sgCache.add(new BoolSetting.Builder()
+        .name("disk-cache")
+        .description("Keep downloaded media on disk so repeat views skip the network")
+        .defaultValue(true)
+        .build()
+    );
+    private final Setting<Integer> diskCacheSize = sgCache.add(new IntSetting.Builder()
+        .name("disk-cache-size")
+        .description("Maximum size of the media disk cache in MB")
+        .defaultValue(512)
+        .min(16)
+        .sliderRange(64, 4096)
+        .visible(diskCache::get)
+        .build()
+    );
+    private final Setting<Boolean> frameCache = sgCache.add(new BoolSetting.Builder()
+        .name("frame-cache")
+        .description("Keep decoded GIF frames on disk so replays skip decoding")
+        .defaultValue(true)
+        .build()
+    );
+    private final Setting<Integer> frameCacheSize = sgCache.add(new IntSetting.Builder()
+        .name("frame-cache-size")
+        .description("Maximum size of the decoded frame cache in MB")
+        .defaultValue(1024)
+        .min(16)
+        .sliderRange(64, 8192)
+        .visible(frameCache::get)
+        .build()
+    );
+    private final Setting<Integer> recentCacheSize = sgCache.add(new IntSetting.Builder()
+        .name("recent-cache-size")
+        .description("GPU memory in MB kept for images already shown, so looping playlists skip reloading them. 0 disables")
+        .defaultValue(128)
+        .min(0)
+        .sliderRange(0, 1024)
+        .onChanged(val -> mc.execute(() -> recent.setCapacity(recentCacheBytes())))
+        .build()
+    );
+    private final Setting<Integer> listingCacheTtl = sgCache.add(new IntSetting.Builder()
+        .name("listing-cache-ttl")
+        .description("Minutes a fetched listing page is reused without asking the site; after that it is revalidated with its ETag")
+        .defaultValue(10)
+        .min(0)
+        .sliderRange(0, 120)
+        .build()
+    );
+    private final Setting<Boolean> listingCacheDisk = sgCache.add(new BoolSetting.Builder()
+        .name("listing-cache-disk")
+        .description("Keep fetched listing pages on disk so they survive restarts")
+        .defaultValue(true)
+        .build()
+    );
+    private final Setting<Integer> playlistHistory = sgCache.add(new IntSetting.Builder()
+        .name("playlist-history")
+        .description("Shown posts to keep in the playlist; once the listing runs out, the playlist loops over what is kept")
+        .defaultValue(500)
+        .min(10)
+        .sliderRange(10, 5000)
+        .build()
+    );
+
     public ImageHUD() {
         super(INFO);
         updateSize();
+        // decodes run on worker threads without a GL context, so the limit is read here once
+        mc.execute(GifAtlas::readTextureLimit);
+        // room for a stream refill next to a visible load that is still downloading
+        work.setLimit(WorkScheduler.Priority.VISIBLE, 2);
     }
 
     private void debug(String message) {
@@ -175,9 +342,9 @@ public class ImageHUD extends HudElement {
         if (!showDebug.get()) return;
         
         synchronized (preloadLock) {
-            System.out.printf("[Preload] State: %d active, %d queued, %d cached%n",
-                activePreloads, preloadQueue.size(), preloadedGifs.size());
-            System.out.printf("[Preload] Current cache: %s%n", preloadedGifs.keySet());
+            System.out.printf("[Preload] State: %d active, %d queued, %d GIFs and %d static images cached%n",
+                activePreloads, preloadQueue.size(), preloadedGifs.size(), preloadedStatics.size());
+            System.out.printf("[Preload] Current cache: %s %s%n", preloadedGifs.keySet(), preloadedStatics.keySet());
         }
     }
 
@@ -188,12 +355,9 @@ public class ImageHUD extends HudElement {
         if (shouldPause != wasPaused) {
             wasPaused = shouldPause;
             if (shouldPause) {
-                debug("Pausing HUD - cleaning up resources");
-                cleanup();
+                hibernate();
             } else {
-                debug("Resuming HUD - initializing preloading");
-                initializePreloading();
-                loadImage();
+                resume();
             }
         }
         
@@ -202,21 +366,12 @@ public class ImageHUD extends HudElement {
             return;
         }
 
+        uploads.drain((long) (uploadBudget.get() * 1_000_000));
+
         renderer.quad(x - 1, y - 1, getWidth() + 2, getHeight() + 2, new Color(0, 0, 0, 100));
 
         if (showDebug.get()) {
-            String debugText = String.format(
-                "%s\nURL: %s\nTags: %s\nCache: %d/%d\nPreloads: %d/%d\nPage: %d",
-                isLoading ? "Loading..." : "Ready",
-                currentUrl != null ? currentUrl : "None",
-                tags.get(),
-                currentImageIndex,
-                cachedImageUrls.size(),
-                preloadedGifs.size(),
-                maxConcurrentGifs.get(),
-                currentPage
-            );
-            renderer.text(debugText, x, y, Color.WHITE, true);
+            renderer.text(String.join("\n", debugLines()), x, y, Color.WHITE, true);
         }
 
         if (isLoading && !showDebug.get()) {
@@ -230,6 +385,11 @@ public class ImageHUD extends HudElement {
 
         renderCurrentImage(renderer);
 
+        if (resizePending && System.currentTimeMillis() - lastResizeTime > RESIZE_DEBOUNCE_MS) {
+            resizePending = false;
+            redecodeStaticForSize();
+        }
+
         if (!shouldPause && !isLoading && cycleTime.get() > 0 && 
             System.currentTimeMillis() - lastCycleTime > cycleTime.get() * 1000L) {
             debug("Cycle time elapsed - loading next image");
@@ -239,22 +399,89 @@ public class ImageHUD extends HudElement {
         if (System.currentTimeMillis() - lastSystemCheckTime > 5000) {
             debug("Performing system check");
             updateSystemStats();
+            reloadLostTextures();
+        }
+    }
+
+    /**
+     * Stops playback but keeps the current image and, up to {@code hibernate-memory}, the
+     * preloads, so resuming is instant. Everything is freed if the pause outlasts the timeout.
+     */
+    private void hibernate() {
+        hibernatedAt = System.currentTimeMillis();
+        int session = ++hibernation;
+        if (gifPlayer != null) gifPlayer.setPaused(true);
+
+        if (hibernateTimeout.get() == 0) {
+            tearDownHibernated();
+            return;
+        }
+        // images already shown are the cheapest to give up while nothing is on screen
+        recent.clear();
+        evictPreloads(hibernateMemory.get() * 1024L * 1024L);
+        debug(String.format("Pausing HUD - hibernating with %.1fMB of textures for up to %ds",
+            textureBudget.getUsedBytes() / (1024.0 * 1024.0), hibernateTimeout.get()));
+
+        // render() is not called outside a world, so the timeout cannot rely on it
+        CompletableFuture.delayedExecutor(hibernateTimeout.get(), TimeUnit.SECONDS, mc).execute(() -> {
+            if (session == hibernation && hibernatedAt != 0) tearDownHibernated();
+        });
+    }
+
+    private void tearDownHibernated() {
+        debug("Paused past the hibernate timeout - cleaning up resources");
+        cleanup();
+        tornDown = true;
+    }
+
+    private void resume() {
+        long pausedFor = System.currentTimeMillis() - hibernatedAt;
+        hibernatedAt = 0;
+        hibernation++;
+
+        if (tornDown) {
+            tornDown = false;
+            debug("Resuming HUD - initializing preloading");
+            initializePreloading();
+            loadImage();
+            return;
+        }
+
+        debug(String.format("Resuming HUD from hibernation after %.1fs", pausedFor / 1000.0));
+        if (gifPlayer != null) gifPlayer.setPaused(false);
+        // the pause does not count towards the current image's cycle time
+        lastCycleTime += pausedFor;
+        scheduleNextPreload();
+    }
+
+    /**
+     * Textures keep no CPU copy after upload, so if the driver drops one the current image is
+     * loaded again, which the frame and media caches make cheap.
+     */
+    private void reloadLostTextures() {
+        if (isLoading || currentUrl == null) return;
+        if (gifPlayer != null && gifPlayer.isTextureLost()) {
+            debug("GIF texture lost, reloading " + currentUrl);
+            isLoading = true;
+            loadAsGifImage(currentUrl);
+        } else if (staticTexture != null && staticTexture.texture().isLost()) {
+            debug("Static texture lost, reloading " + currentUrl);
+            isLoading = true;
+            loadAsStaticImage(currentUrl);
         }
     }
 
     private void renderCurrentImage(HudRenderer renderer) {
         try {
             if (gifPlayer != null) {
-                renderer.texture(
-                    gifPlayer.textureId,
-                    x, y,
+                renderRegion(
+                    gifPlayer.getCurrentRegion(),
                     width.get(),
-                    height.get() > 0 ? height.get() : width.get() * aspectRatio,
-                    Color.WHITE
+                    height.get() > 0 ? height.get() : width.get() * aspectRatio
                 );
             } else if (staticTexture != null) {
                 renderer.texture(
-                    TEXID,
+                    staticTexture.id(),
                     x, y,
                     width.get(),
                     height.get() > 0 ? height.get() : width.get() * aspectRatio,
@@ -271,33 +498,167 @@ public class ImageHUD extends HudElement {
         }
     }
 
+    private void renderRegion(GifPlayer.FrameRegion region, double w, double h) {
+        GL.bindTexture(region.texture());
+        Renderer2D.TEXTURE.begin();
+        Renderer2D.TEXTURE.texQuad(x, y, w, h, 0, region.u1(), region.v1(), region.u2(), region.v2(), Color.WHITE);
+        Renderer2D.TEXTURE.render(null);
+    }
+
     private void initializePreloading() {
-        if (cachedImageUrls.isEmpty()) {
+        if (playlist.isEmpty()) {
             debug("No cached images - skipping preload init");
             return;
         }
 
         synchronized (preloadLock) {
-            debug("Initializing preloading with " + cachedImageUrls.size() + " cached URLs");
+            debug("Initializing preloading with " + playlist.retained() + " cached URLs");
             
             preloadedGifs.values().forEach(gif -> {
                 debug("Cleaning up existing preloaded GIF");
-                gif.destroy();
+                releaseGif(gif);
             });
             preloadedGifs.clear();
+            preloadedStatics.values().forEach(this::releaseStatic);
+            preloadedStatics.clear();
             preloadQueue.clear();
             activePreloads = 0;
 
-            int preloadCount = Math.min(maxConcurrentGifs.get(), cachedImageUrls.size());
+            int preloadCount = Math.min(lookahead.get(), playlist.retained());
             debug("Starting " + preloadCount + " initial preloads");
             
             for (int i = 0; i < preloadCount; i++) {
-                int index = (currentImageIndex + i) % cachedImageUrls.size();
-                String url = cachedImageUrls.get(index);
-                if (allowGifs.get() && url.toLowerCase().endsWith(".gif") && !preloadedGifs.containsKey(url)) {
+                String url = playlist.wrapped(currentImageIndex + i);
+                if (!isPreloaded(url)) {
                     debug("Scheduling preload for " + url);
-                    scheduleGifPreload(url);
+                    schedulePreload(url);
+                }
+            }
+        }
+    }
+
+    /** Preloads {@code url} the way it will be shown: GIFs as players, everything else as a static texture. */
+    private void schedulePreload(String url) {
+        if (loadsAsGif(url)) {
+            scheduleGifPreload(url);
+        } else {
+            scheduleStaticPreload(url);
+        }
+    }
+
+    private boolean loadsAsGif(String url) {
+        boolean isGif = allowGifs.get() && url.toLowerCase().endsWith(".gif");
+        return isGif && !(prioritizeStatic.get() && isSystemConstrained());
+    }
+
+    private boolean isPreloaded(String url) {
+        return preloadedGifs.containsKey(url) || preloadedStatics.containsKey(url) || preloadFlights.isInFlight(url, generation.current())
+            || recent.contains(url);
+    }
+
+    private void scheduleStaticPreload(String url) {
+        if (activePreloads >= maxConcurrentGifs.get()) {
+            debug("Preload queue full, skipping " + url);
+            return;
+        }
+        if (textureBudget.getUsedBytes() >= textureBudgetBytes()) {
+            debug("Texture budget full, skipping preload of " + url);
+            return;
+        }
+        if (preloadFlights.isInFlight(url, generation.current())) {
+            debug("Preload already in flight for " + url);
+            return;
+        }
+
+        WorkScheduler.Priority priority = preloadPriority(url);
+        debug("Starting " + priority + " static preload for " + url);
+
+        activePreloads++;
+        work.setLimit(WorkScheduler.Priority.SPECULATIVE, maxConcurrentGifs.get());
+        Generation.Token token = generation.current();
+        WorkScheduler.Lane lane = work.lane(priority);
+        preloadLanes.put(url, lane);
+        CompletableFuture<Object> future = CompletableFuture.supplyAsync(() -> {
+            ByteBuffer encoded = null;
+            try {
+                encoded = downloadMediaDirect(url, token);
+                if (encoded == null) {
+                    debug("Failed to download " + url);
+                    return null;
                 }
+                work.yieldToForeground();
+                token.throwIfCancelled();
+                StaticImage.Decoded decoded = decodeStatic(url, encoded);
+                MemoryUtil.memFree(encoded);
+                encoded = null;
+                // like GIF preloads, the slot is held until the texture is on the GPU
+                CompletableFuture<Void> uploaded = new CompletableFuture<>();
+                mc.execute(() -> uploadStaticPreload(url, decoded, token, uploaded));
+                uploaded.get();
+            } catch (Exception e) {
+                debug((token.isCancelled() ? "Dropped stale preload of " : "Error during preload of ") + url + ": " + e.getMessage());
+            } finally {
+                if (encoded != null) MemoryUtil.memFree(encoded);
+                preloadLanes.remove(url, lane);
+                finishPreload(url, token);
+            }
+            return null;
+        }, lane);
+
+        preloadQueue.add(future);
+        preloadFlights.track(url, token, future);
+    }
+
+    /** Uploads a decoded static preload behind the current image's uploads. Render thread only. */
+    private void uploadStaticPreload(String url, StaticImage.Decoded decoded, Generation.Token token, CompletableFuture<Void> uploaded) {
+        if (token.isCancelled()) {
+            decoded.image().close();
+            uploaded.complete(null);
+            return;
+        }
+        int textureWidth = decoded.image().getWidth();
+        int textureHeight = decoded.image().getHeight();
+        UploadedTexture texture = new UploadedTexture(textureWidth, textureHeight);
+        uploads.submit(uploads.create(UploadScheduler.Priority.PRELOAD)
+            .uploadTiles(decoded.image(), texture)
+            .onComplete(() -> {
+                Identifier id = nextTextureId("static");
+                MeteorClient.mc.getTextureManager().registerTexture(id, texture);
+                StaticTexture preload = new StaticTexture(id, texture, textureWidth, textureHeight, decoded);
+                preloadedStatics.put(url, preload);
+                textureBudget.track(preload, url, TextureBudget.Role.PRELOAD, preload.bytes());
+                enforceTextureBudget();
+                debug("Successfully preloaded " + url);
+                uploaded.complete(null);
+            })
+            .onCancel(() -> {
+                texture.close();
+                uploaded.complete(null);
+            }));
+    }
+
+    private void releaseStatic(StaticTexture image) {
+        textureBudget.untrack(image);
+        // the texture manager closes the texture along with its registration
+        MeteorClient.mc.getTextureManager().destroyTexture(image.id());
+    }
+
+    private Identifier nextTextureId(String kind) {
+        return Identifier.of("meteor-client", "e621-" + kind + "-" + ++textureSerial);
+    }
+
+    /** Frees the slot a preload held and moves on to the next image in the lookahead window. */
+    private void finishPreload(String url, Generation.Token token) {
+        // a reload already reset the preload state this one belonged to
+        if (token.isCancelled()) return;
+        synchronized (preloadLock) {
+            activePreloads = Math.max(0, activePreloads - 1);
+            debug("Completed preload for " + url + " (" + activePreloads + " active remaining)");
+
+            String nextUrl = findNextToPreload();
+            if (nextUrl != null) {
+                debug("Scheduling next preload for " + nextUrl);
+                schedulePreload(nextUrl);
             }
         }
     }
@@ -307,74 +668,112 @@ public class ImageHUD extends HudElement {
             debug("Preload queue full, skipping " + url);
             return;
         }
+        if (textureBudget.getUsedBytes() >= textureBudgetBytes()) {
+            debug("Texture budget full, skipping preload of " + url);
+            return;
+        }
+        if (preloadFlights.isInFlight(url, generation.current())) {
+            debug("Preload already in flight for " + url);
+            return;
+        }
 
-        debug("Starting preload for " + url);
+        WorkScheduler.Priority priority = preloadPriority(url);
+        debug("Starting " + priority + " preload for " + url);
         debugPreloadState();
         
         activePreloads++;
-        CompletableFuture<GifPlayer> future = CompletableFuture.supplyAsync(() -> {
+        work.setLimit(WorkScheduler.Priority.SPECULATIVE, maxConcurrentGifs.get());
+        Generation.Token token = generation.current();
+        WorkScheduler.Lane lane = work.lane(priority);
+        preloadLanes.put(url, lane);
+        CompletableFuture<Object> future = CompletableFuture.supplyAsync(() -> {
             try {
                 debug("Downloading GIF data for " + url);
-                InputStream stream = Http.get(url).sendInputStream();
-                if (stream == null) {
+                byte[] gifData = downloadMedia(url, token);
+                if (gifData == null) {
                     debug("Failed to download " + url);
                     return null;
                 }
 
-                byte[] gifData = stream.readAllBytes();
                 debug(String.format("Downloaded %s (%.1fKB)", url, gifData.length / 1024f));
-                
-                return mc.submit(() -> {
+                // let a visible or next image that came in meanwhile decode first
+                work.yieldToForeground();
+
+                int reduction = calculateSafeReductionFactor(url, gifData.length);
+                debug(String.format("Decoding GIF for %s (reduction: %d)", url, reduction));
+                GifPlayer.Decoded decoded = GifPlayer.decode(gifData, reduction, frameCacheUrl(url), token, streamFills);
+                lastGifDecodeMs = decoded.getDecodeMillis();
+
+                // uploads trickle in behind the current image's; the preload counts as active until they finish
+                CompletableFuture<GifPlayer> uploaded = new CompletableFuture<>();
+                mc.submit(() -> {
+                    if (token.isCancelled()) {
+                        decoded.close();
+                        uploaded.complete(null);
+                        return;
+                    }
+                    // a preload promoted while it downloaded uploads as the current image
+                    UploadScheduler.Job job = uploads.create(url.equals(currentUrl)
+                        ? UploadScheduler.Priority.CURRENT : UploadScheduler.Priority.PRELOAD);
                     try {
-                        int reduction = calculateSafeReductionFactor(url, gifData.length);
-                        debug(String.format("Creating GifPlayer for %s (reduction: %d)", url, reduction));
-                        
                         GifPlayer player = new GifPlayer(
-                            new ByteArrayInputStream(gifData),
-                            Identifier.of("meteor-client", "e621-preload-" + System.currentTimeMillis()),
-                            reduction
+                            decoded,
+                            nextTextureId("gif"),
+                            job
                         );
-                        
-                        synchronized (preloadLock) {
-                            preloadedGifs.put(url, player);
-                            debug("Successfully preloaded " + url);
-                            debugPreloadState();
-                        }
-                        return player;
+                        job.onComplete(() -> {
+                            preloadUploads.remove(url);
+                            recordGifUpload(job.getWorkMillis());
+                            synchronized (preloadLock) {
+                                preloadedGifs.put(url, player);
+                                debug("Successfully preloaded " + url);
+                                debugPreloadState();
+                            }
+                            TextureBudget.Role role = url.equals(currentUrl) ? TextureBudget.Role.CURRENT : TextureBudget.Role.PRELOAD;
+                            textureBudget.track(player, url, role, player.getTextureBytes());
+                            enforceTextureBudget();
+                            uploaded.complete(player);
+                        }).onCancel(() -> {
+                            preloadUploads.remove(url);
+                            player.destroy();
+                            uploaded.complete(null);
+                        });
+                        preloadUploads.put(url, job);
+                        uploads.submit(job);
                     } catch (Exception e) {
                         debug("Error creating GifPlayer for " + url + ": " + e.getMessage());
-                        return null;
+                        job.cancel();
+                        decoded.close();
+                        uploaded.complete(null);
                     }
                 }).get();
+                return uploaded.get();
             } catch (Exception e) {
-                debug("Error during preload of " + url + ": " + e.getMessage());
+                debug((token.isCancelled() ? "Dropped stale preload of " : "Error during preload of ") + url + ": " + e.getMessage());
                 return null;
             } finally {
-                synchronized (preloadLock) {
-                    activePreloads--;
-                    debug("Completed preload for " + url + " (" + activePreloads + " active remaining)");
-                    
-                    // Schedule next preload if queue isn't empty
-                    if (!preloadQueue.isEmpty()) {
-                        String nextUrl = findNextGifToPreload();
-                        if (nextUrl != null) {
-                            debug("Scheduling next preload for " + nextUrl);
-                            scheduleGifPreload(nextUrl);
-                        }
-                    }
-                }
+                preloadLanes.remove(url, lane);
+                finishPreload(url, token);
             }
-        }, executor);
+        }, lane);
 
         preloadQueue.add(future);
+        preloadFlights.track(url, token, future);
+    }
+
+    /** The image shown right after the current one is preloaded ahead of anything further out. */
+    private WorkScheduler.Priority preloadPriority(String url) {
+        String next = playlist.wrapped(currentImageIndex);
+        return url.equals(next) ? WorkScheduler.Priority.NEXT : WorkScheduler.Priority.SPECULATIVE;
     }
 
-    private String findNextGifToPreload() {
+    /** First image in the lookahead window that is neither preloaded nor being preloaded. */
+    private String findNextToPreload() {
         synchronized (preloadLock) {
-            for (int i = 0; i < cachedImageUrls.size(); i++) {
-                int index = (currentImageIndex + i) % cachedImageUrls.size();
-                String url = cachedImageUrls.get(index);
-                if (allowGifs.get() && url.toLowerCase().endsWith(".gif") && !preloadedGifs.containsKey(url)) {
+            int window = Math.min(lookahead.get(), playlist.retained());
+            for (int i = 0; i < window; i++) {
+                String url = playlist.wrapped(currentImageIndex + i);
+                if (url != null && !url.equals(currentUrl) && !isPreloaded(url)) {
                     return url;
                 }
             }
@@ -388,59 +787,163 @@ public class ImageHUD extends HudElement {
             return;
         }
         
-        if (needsNewFetch || cachedImageUrls.isEmpty()) {
+        if (needsNewFetch || playlist.isEmpty()) {
             debug("Need new fetch - " + (needsNewFetch ? "forced" : "empty cache"));
-            fetchAllPosts();
+            fetchMorePosts();
         } else {
             debug("Loading next image from cache");
             loadNextImage();
         }
     }
 
-    private void fetchAllPosts() {
-        if (isLoading || !hasMorePages) {
-            debug("Skipping fetch - " + (isLoading ? "already loading" : "no more pages"));
+    /**
+     * Pulls posts from the listing until the lookahead is covered, queueing each one as soon as it
+     * is parsed. The next page is only requested once the posts before it are needed.
+     */
+    private void fetchMorePosts() {
+        if (isFetching || !hasMorePages) {
+            debug("Skipping fetch - " + (isFetching ? "already fetching" : "no more pages"));
             return;
         }
         
-        debug("Fetching posts for page " + currentPage);
-        isLoading = true;
-        executor.execute(() -> {
-            synchronized (fetchLock) {
+        isFetching = true;
+        Generation.Token token = generation.current();
+        work.execute(WorkScheduler.Priority.PAGE_FETCH, () -> {
+            try {
+                PostStream stream;
+                fetchLock.lock();
                 try {
+                    token.throwIfCancelled();
                     String searchTags = tags.get().trim();
                     if (searchTags.isEmpty()) {
                         debug("No tags specified - skipping fetch");
-                        isLoading = false;
                         return;
                     }
 
-                    Source source = Source.getSource(this.source.get());
-                    debug("Fetching from source: " + source.getClass().getSimpleName());
-                    List<String> newUrls = source.getPageImageUrls(searchTags, size.get(), currentPage);
-                    
-                    if (newUrls.isEmpty()) {
-                        debug("No more pages available");
-                        hasMorePages = false;
-                    } else {
-                        debug("Fetched " + newUrls.size() + " new URLs");
-                        cachedImageUrls.addAll(newUrls);
-                        currentPage++;
-                        
-                        if (currentPage == 2) {
-                            debug("First page fetched - loading initial image");
-                            loadNextImage();
-                        }
+                    ListingCache listings = ListingCache.get();
+                    listings.setTtl(listingCacheTtl.get() * 60_000L);
+                    listings.setPersistent(listingCacheDisk.get());
+                    if (postStream == null) {
+                        Source source = Source.getSource(this.source.get());
+                        debug("Streaming posts from source: " + source.getClass().getSimpleName());
+                        postStream = new PostStream(source, searchTags, size.get());
                     }
-                } catch (Exception e) {
-                    debug("Error fetching posts: " + e.getMessage());
+                    stream = postStream;
                 } finally {
-                    isLoading = false;
+                    fetchLock.unlock();
+                }
+
+                int fetched = 0;
+                while (playlist.size() - currentImageIndex <= lookahead.get()) {
+                    // outside the lock: a query change closes the stream, failing a read blocked on the network
+                    Post post = stream.next();
+                    int position;
+                    fetchLock.lock();
+                    try {
+                        token.throwIfCancelled();
+                        if (post == null) {
+                            debug("No more posts available");
+                            hasMorePages = false;
+                            break;
+                        }
+                        position = playlist.add(pickVariant(post));
+                    } finally {
+                        fetchLock.unlock();
+                    }
+                    fetched++;
+                    if (position == 0) {
+                        debug("First post parsed - loading initial image");
+                        mc.execute(() -> {
+                            if (!isLoading && currentImageIndex == 0) loadNextImage();
+                        });
+                    }
                 }
+                debug("Queued " + fetched + " posts, listing at page " + stream.getCursor().param());
+            } catch (CancellationException e) {
+                debug("Dropped stale page fetch: " + e.getMessage());
+            } catch (Exception e) {
+                debug((token.isCancelled() ? "Dropped stale page fetch: " : "Error fetching posts: ") + e.getMessage());
+            } finally {
+                if (!token.isCancelled()) isFetching = false;
             }
         });
     }
 
+    /** The debug overlay, a line or two per subsystem. Render thread only. */
+    private List<String> debugLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(isLoading ? "Loading..." : "Ready");
+        lines.add("URL: " + (currentUrl != null ? currentUrl : "None"));
+        lines.add("Tags: " + tags.get());
+
+        // listing and playlist
+        PostStream listing = postStream;
+        lines.add(String.format("Cache: %d/%d", currentImageIndex, playlist.size()));
+        lines.add(String.format("Listing: page %d (%s), %d duplicates skipped",
+            listing != null ? listing.getCursor().page() : 1,
+            listing != null ? listing.getCursor().param() : "1",
+            listing != null ? listing.getDuplicates() : 0));
+        lines.add(String.format("Listings: %d cached, %d revalidated, %d fetched",
+            ListingCache.get().getHits(), ListingCache.get().getRevalidations(), ListingCache.get().getMisses()));
+        lines.add(String.format("Playlist: %d held, %d evicted (%.1fKB)",
+            playlist.retained(), playlist.getEvicted(), playlist.getBytes() / 1024.0));
+
+        // downloads
+        Post.Variant autoVariant = lastAutoVariant;
+        lines.add(String.format("Bandwidth: %.0fKB/s over %d downloads, auto size last picked %s",
+            Math.max(0, bandwidth.getBytesPerSecond()) / 1024, bandwidth.getSamples(),
+            autoVariant != null ? autoVariant.width() + "x" + autoVariant.height() : "none"));
+        lines.add(String.format("Disk: %d hit, %d miss, %d evicted (%.1f/%dMB)",
+            MediaCache.get().getHits(), MediaCache.get().getMisses(), MediaCache.get().getEvictions(),
+            MediaCache.get().getTotalBytes() / (1024.0 * 1024.0), diskCacheSize.get()));
+        lines.add(String.format("Dedup: %d downloads shared, %d preloads promoted",
+            mediaFlights.getJoined(), preloadFlights.getJoined()));
+
+        // decoding
+        lines.add(String.format("Preloads: %d/%d", preloadedGifs.size() + preloadedStatics.size(), lookahead.get()));
+        lines.add(String.format("GIF decode: %.0fms (worker)", lastGifDecodeMs));
+        lines.add(String.format("Frames: %d hit, %d miss (%.1f/%dMB)",
+            FrameCache.get().getHits(), FrameCache.get().getMisses(),
+            FrameCache.get().getTotalBytes() / (1024.0 * 1024.0), frameCacheSize.get()));
+        lines.add(String.format("First frame: %.0fms %s, cold avg %.0fms, warm avg %.0fms",
+            lastFirstFrameMs, lastFirstFrameWarm ? "(warm)" : "(cold)",
+            coldFirstFrameCount > 0 ? coldFirstFrameMs / coldFirstFrameCount : 0,
+            warmFirstFrameCount > 0 ? warmFirstFrameMs / warmFirstFrameCount : 0));
+        lines.add(String.format("Static: %dx%d from %dx%d",
+            staticTextureWidth, staticTextureHeight, staticSourceWidth, staticSourceHeight));
+        lines.add(String.format("Work (running/queued): visible %d/%d, next %d/%d, pages %d/%d, speculative %d/%d",
+            work.getRunning(WorkScheduler.Priority.VISIBLE), work.getQueued(WorkScheduler.Priority.VISIBLE),
+            work.getRunning(WorkScheduler.Priority.NEXT), work.getQueued(WorkScheduler.Priority.NEXT),
+            work.getRunning(WorkScheduler.Priority.PAGE_FETCH), work.getQueued(WorkScheduler.Priority.PAGE_FETCH),
+            work.getRunning(WorkScheduler.Priority.SPECULATIVE), work.getQueued(WorkScheduler.Priority.SPECULATIVE)));
+
+        // uploads and GPU memory
+        lines.add(String.format("GIF upload: %.1fms last, %.1fms avg, %.1fms max (render)",
+            lastGifUploadMs, gifUploadCount > 0 ? totalGifUploadMs / gifUploadCount : 0, maxGifUploadMs));
+        lines.add(String.format("Uploads: %d steps queued, %.1fms last frame, %.1fms max",
+            uploads.getPendingSteps(), uploads.getLastDrainMillis(), uploads.getMaxDrainMillis()));
+        lines.add(String.format("Textures: %.1f/%dMB (%d preloaded, %d recent), %d evicted",
+            textureBudget.getUsedBytes() / (1024.0 * 1024.0), textureBudgetMb.get(),
+            textureBudget.getCount(TextureBudget.Role.PRELOAD), textureBudget.getCount(TextureBudget.Role.RECENT),
+            textureBudget.getEvictions()));
+        lines.add(String.format("Recent: %d images (%.1f/%dMB), %.0f%% hit rate",
+            recent.size(), recent.getUsedBytes() / (1024.0 * 1024.0), recentCacheSize.get(), recent.getHitRate() * 100));
+        lines.add(String.format("Native pixels: %.1fMB resident, %.1fMB freed after upload",
+            residentNativeBytes() / (1024.0 * 1024.0), UploadedTexture.getReleasedBytes() / (1024.0 * 1024.0)));
+        return lines;
+    }
+
+    /** {@code post} at the size to show it in; with the auto size, the variant that suits the HUD and bandwidth. */
+    private Post pickVariant(Post post) {
+        if (size.get() != Source.Size.auto) return post;
+        Post.Variant variant = AutoSize.pick(post, width.get(), height.get(), bandwidth.getBytesPerSecond(), cycleTime.get(), allowGifs.get());
+        if (variant == null) return post;
+        lastAutoVariant = variant;
+        debug(String.format("Auto size picked %dx%d for post %d (%.0fKB/s measured)", variant.width(), variant.height(),
+            post.id(), bandwidth.getBytesPerSecond() / 1024));
+        return post.withUrl(variant.url());
+    }
+
     private void loadNextImage() {
         if (paused) {
             debug("Paused, skipping image load");
@@ -448,90 +951,164 @@ public class ImageHUD extends HudElement {
             return;
         }
 
-        if (cachedImageUrls.size() - currentImageIndex < 50 && hasMorePages) {
-            debug("Low cache (" + (cachedImageUrls.size() - currentImageIndex) + "), fetching more posts");
-            fetchAllPosts();
+        if (playlist.size() - currentImageIndex <= lookahead.get() && hasMorePages) {
+            debug("Lookahead not covered (" + (playlist.size() - currentImageIndex) + " queued), fetching more posts");
+            fetchMorePosts();
         }
 
-        if (currentImageIndex >= cachedImageUrls.size()) {
+        if (currentImageIndex >= playlist.size()) {
             if (hasMorePages) {
                 debug("Reached end of cache, fetching more posts");
-                fetchAllPosts();
+                fetchMorePosts();
             } else {
+                // the listing has ended, so loop over whatever is still held
                 debug("Resetting to start of cache");
-                currentImageIndex = 0;
+                currentImageIndex = playlist.first();
             }
             return;
         }
 
-        currentUrl = cachedImageUrls.get(currentImageIndex);
+        currentUrl = playlist.url(currentImageIndex);
         currentImageIndex++;
+        // while the listing still grows, only keep a bounded history behind the playhead
+        if (hasMorePages) playlist.evictBefore(currentImageIndex - playlistHistory.get());
         isLoading = true;
         
         debug("Loading image #" + currentImageIndex + ": " + currentUrl);
 
-        GifPlayer preloaded = preloadedGifs.remove(currentUrl);
+        String url = currentUrl;
+        MeteorClient.mc.executeTask(() -> {
+            Object seen = recent.take(url);
+            if (seen != null && !isLost(seen)) {
+                debug("Reusing recently shown image for " + url);
+                if (seen instanceof GifPlayer player) showPreloaded(player, url);
+                else showPreloaded((StaticTexture) seen, url);
+                return;
+            }
+            if (seen != null) releaseRecent(seen);
+            loadUnseen(url);
+        });
+    }
+
+    /** Loads an image that is not in the recently shown cache, from a preload when there is one. Render thread only. */
+    private void loadUnseen(String url) {
+        if (!url.equals(currentUrl)) return;
+
+        GifPlayer preloaded = preloadedGifs.remove(url);
         if (preloaded != null) {
-            debug("Using preloaded GIF for " + currentUrl);
-            MeteorClient.mc.executeTask(() -> {
-                cleanup();
-                gifPlayer = preloaded;
-                aspectRatio = gifPlayer.getAspectRatio();
-                updateSize();
-                lastCycleTime = System.currentTimeMillis();
-                isLoading = false;
-                scheduleNextPreload();
-            });
+            debug("Using preloaded GIF for " + url);
+            showPreloaded(preloaded, url);
             return;
         }
 
-        boolean isGif = allowGifs.get() && currentUrl.toLowerCase().endsWith(".gif");
+        StaticTexture preloadedStatic = preloadedStatics.remove(url);
+        if (preloadedStatic != null) {
+            debug("Using preloaded static image for " + url);
+            showPreloaded(preloadedStatic, url);
+            return;
+        }
+
+        CompletableFuture<Object> inFlight = preloadFlights.join(url, generation.current());
+        if (inFlight != null) {
+            promoteInFlightPreload(url, inFlight);
+            return;
+        }
+
+        boolean isGif = allowGifs.get() && url.toLowerCase().endsWith(".gif");
         if (isGif && prioritizeStatic.get() && isSystemConstrained()) {
-            debug("System constrained, loading GIF as static: " + currentUrl);
-            loadAsStaticImage(currentUrl);
+            debug("System constrained, loading GIF as static: " + url);
+            loadAsStaticImage(url);
         } else if (isGif) {
-            debug("Loading as GIF: " + currentUrl);
-            loadAsGifImage(currentUrl);
+            debug("Loading as GIF: " + url);
+            loadAsGifImage(url);
         } else {
-            debug("Loading as static image: " + currentUrl);
-            loadAsStaticImage(currentUrl);
+            debug("Loading as static image: " + url);
+            loadAsStaticImage(url);
         }
     }
 
-    private void scheduleNextPreload() {
-        synchronized (preloadLock) {
-            if (preloadedGifs.size() >= maxConcurrentGifs.get()) {
-                debug("Preload cache full - skipping next preload");
-                return;
+    /** Puts a finished preload or a recently shown GIF on screen. Render thread only. */
+    private void showPreloaded(GifPlayer preloaded, String url) {
+        releaseCurrent();
+        gifPlayer = preloaded;
+        gifPlayer.setPaused(false);
+        // tracked already as a preload or a recent image; either way it is CURRENT now
+        textureBudget.promote(preloaded, url, preloaded.getTextureBytes());
+        shownUrl = url;
+        shownReduction = preloaded.getReduction();
+        aspectRatio = gifPlayer.getAspectRatio();
+        updateSize();
+        lastCycleTime = System.currentTimeMillis();
+        isLoading = false;
+        scheduleNextPreload();
+    }
+
+    /** Swaps in a preloaded static texture; no download or decode left to do. Render thread only. */
+    private void showPreloaded(StaticTexture preloaded, String url) {
+        releaseCurrent();
+        installStaticTexture(preloaded, url);
+        lastCycleTime = System.currentTimeMillis();
+        isLoading = false;
+        scheduleNextPreload();
+    }
+
+    /**
+     * Waits for a preload of {@code url} that is still running and shows its result, rather than
+     * downloading and decoding the same image again. Its download and decode move to the visible
+     * class and its uploads jump ahead of other preloads.
+     */
+    private void promoteInFlightPreload(String url, CompletableFuture<Object> flight) {
+        debug("Promoting in-flight preload of " + url);
+        Generation.Token token = generation.current();
+        WorkScheduler.Lane lane = preloadLanes.get(url);
+        if (lane != null) lane.setPriority(WorkScheduler.Priority.VISIBLE);
+        MeteorClient.mc.executeTask(() -> {
+            UploadScheduler.Job job = preloadUploads.get(url);
+            if (job != null) job.setPriority(UploadScheduler.Priority.CURRENT);
+        });
+        flight.whenComplete((player, error) -> MeteorClient.mc.execute(() -> {
+            if (token.isCancelled() || !url.equals(currentUrl)) return;
+            GifPlayer preloaded = preloadedGifs.remove(url);
+            StaticTexture preloadedStatic = preloadedStatics.remove(url);
+            if (preloaded != null) {
+                showPreloaded(preloaded, url);
+            } else if (preloadedStatic != null) {
+                showPreloaded(preloadedStatic, url);
+            } else if (!loadsAsGif(url)) {
+                debug("Promoted preload of " + url + " did not finish, loading it directly");
+                loadAsStaticImage(url);
+            } else {
+                debug("Promoted preload of " + url + " did not finish, loading it directly");
+                loadAsGifImage(url);
             }
+        }));
+    }
 
-            for (int i = 0; i < cachedImageUrls.size(); i++) {
-                int index = (currentImageIndex + i) % cachedImageUrls.size();
-                String url = cachedImageUrls.get(index);
-                if (allowGifs.get() && url.toLowerCase().endsWith(".gif") && !preloadedGifs.containsKey(url)) {
-                    debug("Scheduling next preload for " + url);
-                    scheduleGifPreload(url);
-                    break;
+    /** Tops up the lookahead window with as many preloads as there are free slots. */
+    private void scheduleNextPreload() {
+        synchronized (preloadLock) {
+            int slots = maxConcurrentGifs.get() - activePreloads;
+            for (int i = 0; i < slots; i++) {
+                String url = findNextToPreload();
+                if (url == null) {
+                    debug("Lookahead window full - skipping next preload");
+                    return;
                 }
+                debug("Scheduling next preload for " + url);
+                schedulePreload(url);
             }
         }
     }
 
     private void loadAsGifImage(String url) {
         debug("Starting GIF load for " + url);
-        executor.execute(() -> {
-            InputStream stream = null;
+        Generation.Token token = generation.current();
+        work.execute(WorkScheduler.Priority.VISIBLE, () -> {
+            long start = System.nanoTime();
             try {
-                cleanup();
-                Http.Request request = Http.get(url);
-                stream = request.sendInputStream();
-                if (stream == null) {
-                    debug("Failed to get stream for " + url);
-                    tryFallbackImageLoading(url);
-                    return;
-                }
-
-                byte[] gifData = stream.readAllBytes();
+                token.throwIfCancelled();
+                mc.execute(this::releaseCurrent);
+                byte[] gifData = downloadMedia(url, token);
                 if (gifData == null || gifData.length == 0) {
                     debug("Empty GIF data for " + url);
                     tryFallbackImageLoading(url);
@@ -539,67 +1116,300 @@ public class ImageHUD extends HudElement {
                 }
 
                 debug("Successfully downloaded GIF (" + gifData.length + " bytes)");
+                int reduction = calculateSafeReductionFactor(url, gifData.length);
+                debug("Decoding GIF with reduction " + reduction);
+                GifPlayer.Decoded decoded = GifPlayer.decode(gifData, reduction, frameCacheUrl(url), token, streamFills);
+                lastGifDecodeMs = decoded.getDecodeMillis();
+
                 MeteorClient.mc.executeTask(() -> {
+                    if (token.isCancelled()) {
+                        decoded.close();
+                        return;
+                    }
+                    UploadScheduler.Job job = uploads.create(UploadScheduler.Priority.CURRENT);
                     try {
-                        int reduction = calculateSafeReductionFactor(url, gifData.length);
-                        debug("Creating GifPlayer with reduction " + reduction);
-                        gifPlayer = new GifPlayer(
-                            new ByteArrayInputStream(gifData),
-                            TEXID,
-                            reduction
-                        );
-                        aspectRatio = gifPlayer.getAspectRatio();
-                        updateSize();
-                        lastCycleTime = System.currentTimeMillis();
-                        debug("GIF loaded successfully");
+                        GifPlayer player = new GifPlayer(decoded, nextTextureId("gif"), job);
+                        job.onComplete(() -> {
+                            gifPlayer = player;
+                            shownUrl = url;
+                            shownReduction = player.getReduction();
+                            textureBudget.track(player, url, TextureBudget.Role.CURRENT, player.getTextureBytes());
+                            enforceTextureBudget();
+                            recordGifUpload(job.getWorkMillis());
+                            recordFirstFrame(start, decoded.isFromCache());
+                            aspectRatio = player.getAspectRatio();
+                            updateSize();
+                            lastCycleTime = System.currentTimeMillis();
+                            isLoading = false;
+                            debug("GIF loaded successfully");
+                        }).onCancel(() -> {
+                            player.destroy();
+                            if (!token.isCancelled()) isLoading = false;
+                        });
+                        uploads.submit(job);
                     } catch (Exception e) {
                         debug("Error creating GifPlayer: " + e.getMessage());
+                        job.cancel();
+                        decoded.close();
                         tryFallbackImageLoading(url);
-                    } finally {
-                        isLoading = false;
                     }
                 });
             } catch (Exception e) {
+                if (token.isCancelled()) {
+                    debug("Dropped stale GIF load of " + url);
+                    return;
+                }
                 debug("Error loading GIF: " + e.getMessage());
                 tryFallbackImageLoading(url);
-            } finally {
-                if (stream != null) {
-                    try { stream.close(); } catch (Exception ignored) {}
-                }
             }
         });
     }
 
     private void loadAsStaticImage(String url) {
         debug("Loading static image from " + url);
-        executor.execute(() -> {
+        Generation.Token token = generation.current();
+        work.execute(WorkScheduler.Priority.VISIBLE, () -> {
+            ByteBuffer encoded = null;
             try {
-                cleanup();
-                try (InputStream stream = Http.get(url).sendInputStream()) {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    ImageIO.write(ImageIO.read(stream), "png", baos);
-                    NativeImage image = NativeImage.read(new ByteArrayInputStream(baos.toByteArray()));
-                    aspectRatio = (double) image.getHeight() / image.getWidth();
-                    debug("Static image loaded (" + image.getWidth() + "x" + image.getHeight() + ")");
-                    MeteorClient.mc.executeTask(() -> {
-                        try {
-                            staticTexture = new NativeImageBackedTexture(image);
-                            MeteorClient.mc.getTextureManager().registerTexture(TEXID, staticTexture);
-                            updateSize();
+                token.throwIfCancelled();
+                mc.execute(this::releaseCurrent);
+                encoded = downloadMediaDirect(url, token);
+                if (encoded == null) {
+                    throw new IOException("Download failed");
+                }
+
+                token.throwIfCancelled();
+                StaticImage.Decoded decoded = decodeStatic(url, encoded);
+                MeteorClient.mc.executeTask(() -> {
+                    if (token.isCancelled()) {
+                        decoded.image().close();
+                        return;
+                    }
+                    uploadStaticTexture(decoded, url, installed -> {
+                        if (installed) {
                             lastCycleTime = System.currentTimeMillis();
                             debug("Static texture registered");
-                        } finally {
-                            isLoading = false;
                         }
+                        if (!token.isCancelled()) isLoading = false;
                     });
-                }
+                });
             } catch (Exception e) {
+                if (token.isCancelled()) {
+                    debug("Dropped stale static load of " + url);
+                    return;
+                }
                 debug("Error loading static image: " + e.getMessage());
                 isLoading = false;
+            } finally {
+                if (encoded != null) MemoryUtil.memFree(encoded);
             }
         });
     }
 
+    private StaticImage.Decoded decodeStatic(String url, ByteBuffer encoded) throws IOException {
+        StaticImage.Decoded decoded = StaticImage.decode(encoded, width.get(), height.get());
+        if (decoded == null) {
+            debug("stb_image cannot decode " + url + ", falling back to ImageIO");
+            decoded = StaticImage.decodeFallback(encoded, width.get(), height.get());
+        }
+        debug(String.format("Static image decoded at %dx%d from %dx%d", decoded.image().getWidth(),
+            decoded.image().getHeight(), decoded.sourceWidth(), decoded.sourceHeight()));
+        return decoded;
+    }
+
+    /**
+     * Uploads {@code decoded} over the next frames within the upload budget, then swaps it in for
+     * the static texture. {@code done} learns whether it was installed or cancelled. Render thread only.
+     */
+    private void uploadStaticTexture(StaticImage.Decoded decoded, String url, Consumer<Boolean> done) {
+        NativeImage image = decoded.image();
+        int textureWidth = image.getWidth();
+        int textureHeight = image.getHeight();
+        UploadedTexture texture = new UploadedTexture(textureWidth, textureHeight);
+        uploads.submit(uploads.create(UploadScheduler.Priority.CURRENT)
+            .uploadTiles(image, texture)
+            .onComplete(() -> {
+                Identifier id = nextTextureId("static");
+                MeteorClient.mc.getTextureManager().registerTexture(id, texture);
+                installStaticTexture(new StaticTexture(id, texture, textureWidth, textureHeight, decoded), url);
+                done.accept(true);
+            })
+            .onCancel(() -> {
+                texture.close();
+                done.accept(false);
+            }));
+    }
+
+    /** Swaps the static texture for a fully uploaded, registered {@code image}. Render thread only. */
+    private void installStaticTexture(StaticTexture image, String url) {
+        if (staticTexture != null) {
+            releaseStatic(staticTexture);
+        }
+        staticTexture = image;
+        shownUrl = url;
+        shownReduction = 1;
+        staticTextureWidth = image.width();
+        staticTextureHeight = image.height();
+        textureBudget.promote(image, url, image.bytes());
+        enforceTextureBudget();
+        staticSourceWidth = image.decoded().sourceWidth();
+        staticSourceHeight = image.decoded().sourceHeight();
+        aspectRatio = image.decoded().getAspectRatio();
+        updateSize();
+    }
+
+    private void onResized() {
+        updateSize();
+        lastResizeTime = System.currentTimeMillis();
+        resizePending = true;
+    }
+
+    /**
+     * Re-decodes the current static image once a resize has settled, if the element grew past
+     * the decoded detail or shrank well below it. The encoded file comes from the disk cache.
+     */
+    private void redecodeStaticForSize() {
+        if (staticTexture == null || gifPlayer != null || isLoading || currentUrl == null) return;
+
+        int targetWidth = Downscaler.targetWidth(staticSourceWidth, width.get());
+        int targetHeight = Downscaler.targetHeight(staticSourceWidth, staticSourceHeight, targetWidth, height.get());
+        boolean grew = targetWidth > staticTextureWidth || targetHeight > staticTextureHeight;
+        boolean shrank = targetWidth < staticTextureWidth * 3 / 4 && targetHeight < staticTextureHeight * 3 / 4;
+        if (!grew && !shrank) return;
+
+        String url = currentUrl;
+        debug(String.format("Resized to %dx%d, re-decoding %s", targetWidth, targetHeight, url));
+        Generation.Token token = generation.current();
+        work.execute(WorkScheduler.Priority.VISIBLE, () -> {
+            ByteBuffer encoded = null;
+            try {
+                encoded = downloadMediaDirect(url, token);
+                if (encoded == null) return;
+                StaticImage.Decoded decoded = decodeStatic(url, encoded);
+                MeteorClient.mc.executeTask(() -> {
+                    // a different image may have been loaded meanwhile
+                    if (token.isCancelled() || !url.equals(currentUrl) || staticTexture == null || gifPlayer != null) {
+                        decoded.image().close();
+                        return;
+                    }
+                    uploadStaticTexture(decoded, url, installed -> {});
+                });
+            } catch (Exception e) {
+                debug("Error re-decoding static image: " + e.getMessage());
+            } finally {
+                if (encoded != null) MemoryUtil.memFree(encoded);
+            }
+        });
+    }
+
+    /**
+     * Fetches media bytes through the disk cache, or straight from the network when it is disabled.
+     * Cancelling {@code token} aborts the transfer.
+     */
+    private byte[] downloadMedia(String url, Generation.Token token) throws IOException {
+        MediaCache cache = diskCache.get() ? MediaCache.get() : null;
+        if (cache != null) {
+            cache.setBudget(diskCacheSize.get() * 1024L * 1024L);
+            byte[] cached = cache.get(url);
+            if (cached != null) {
+                debug(String.format("Disk cache hit for %s (%.1fKB)", url, cached.length / 1024f));
+                return cached;
+            }
+        }
+
+        // a preload and a visible load of the same URL share one transfer
+        try {
+            return mediaFlights.execute(url, token, () -> fetchMedia(url, cache, token));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private byte[] fetchMedia(String url, MediaCache cache, Generation.Token token) throws IOException {
+        long start = System.nanoTime();
+        InputStream stream = Http.get(url).sendInputStream();
+        if (stream == null) return null;
+        try (stream) {
+            token.register(stream);
+            byte[] data = stream.readAllBytes();
+            token.throwIfCancelled();
+            bandwidth.record(data.length, System.nanoTime() - start);
+            if (cache != null && data.length > 0) cache.put(url, data);
+            return data;
+        } finally {
+            token.unregister(stream);
+        }
+    }
+
+    /** URL to key the decoded frame cache by, or null when that tier is disabled. */
+    private String frameCacheUrl(String url) {
+        if (!frameCache.get()) return null;
+        FrameCache.get().setBudget(frameCacheSize.get() * 1024L * 1024L);
+        return url;
+    }
+
+    private void recordFirstFrame(long startNanos, boolean warm) {
+        lastFirstFrameMs = (System.nanoTime() - startNanos) / 1_000_000.0;
+        lastFirstFrameWarm = warm;
+        if (warm) {
+            warmFirstFrameMs += lastFirstFrameMs;
+            warmFirstFrameCount++;
+        } else {
+            coldFirstFrameMs += lastFirstFrameMs;
+            coldFirstFrameCount++;
+        }
+        debug(String.format("First GIF frame after %.1fms (%s)", lastFirstFrameMs, warm ? "frame cache" : "decoded"));
+    }
+
+    /**
+     * Like {@link #downloadMedia(String, Generation.Token)}, but streams into an off-heap buffer so the encoded
+     * file never lands on the Java heap. The caller frees the result with {@link MemoryUtil#memFree}.
+     */
+    private ByteBuffer downloadMediaDirect(String url, Generation.Token token) throws IOException {
+        MediaCache cache = diskCache.get() ? MediaCache.get() : null;
+        if (cache != null) {
+            cache.setBudget(diskCacheSize.get() * 1024L * 1024L);
+            ByteBuffer cached = cache.getDirect(url);
+            if (cached != null) {
+                debug(String.format("Disk cache hit for %s (%.1fKB)", url, cached.remaining() / 1024f));
+                return cached;
+            }
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = Http.get(url).sendInputStreamResponse();
+        if (response == null || response.body() == null) return null;
+        InputStream stream = response.body();
+        try (stream) {
+            token.register(stream);
+            if (response.statusCode() / 100 != 2) {
+                debug("HTTP " + response.statusCode() + " for " + url);
+                return null;
+            }
+            long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            ByteBuffer data = StaticImage.readDirect(stream, length);
+            if (token.isCancelled()) {
+                MemoryUtil.memFree(data);
+                token.throwIfCancelled();
+            }
+            bandwidth.record(data.remaining(), System.nanoTime() - start);
+            if (cache != null) cache.put(url, data);
+            return data;
+        } finally {
+            token.unregister(stream);
+        }
+    }
+
+    private void recordGifUpload(double uploadMs) {
+        lastGifUploadMs = uploadMs;
+        maxGifUploadMs = Math.max(maxGifUploadMs, lastGifUploadMs);
+        totalGifUploadMs += lastGifUploadMs;
+        gifUploadCount++;
+        debug(String.format("GIF upload took %.1fms on the render thread, spread over frames", lastGifUploadMs));
+    }
+
     private void tryFallbackImageLoading(String url) {
         debug("Attempting fallback loading for " + url);
         if (url.toLowerCase().endsWith(".gif") && !url.equals(currentUrl)) {
@@ -620,36 +1430,105 @@ public class ImageHUD extends HudElement {
 
     private void updateSystemStats() {
         try {
-            long totalVram = GL11.glGetInteger(0x9047);
-            long usedVram = GL11.glGetInteger(0x9049);
-            lastVramUsage = 100 - ((usedVram * 100.0) / totalVram);
-            
             Runtime runtime = Runtime.getRuntime();
             lastMemoryUsage = (runtime.totalMemory() - runtime.freeMemory()) * 100.0 / runtime.maxMemory();
             
             lastSystemCheckTime = System.currentTimeMillis();
-            debug(String.format("System stats - VRAM: %.1f%%, RAM: %.1f%%", lastVramUsage, lastMemoryUsage));
+            debug(String.format("System stats - textures: %.1f%% of budget, RAM: %.1f%%", textureUsage(), lastMemoryUsage));
         } catch (Exception ignored) {}
     }
 
-    private boolean isSystemConstrained() {
-        if (!MinecraftClient.getInstance().isOnThread()) {
-            return false;
+    private long recentCacheBytes() {
+        return recentCacheSize.get() * 1024L * 1024L;
+    }
+
+    private long textureBudgetBytes() {
+        return textureBudgetMb.get() * 1024L * 1024L;
+    }
+
+    /** Share of the texture budget in use, from exact allocation sizes rather than driver queries. */
+    private double textureUsage() {
+        return textureBudget.getUsedBytes() * 100.0 / textureBudgetBytes();
+    }
+
+    /** Drops the least useful recent images and preloads until the textures held fit the budget. Render thread only. */
+    private void enforceTextureBudget() {
+        evictPreloads(textureBudgetBytes());
+    }
+
+    /** Drops the least useful recent images and preloads until texture usage fits {@code budgetBytes}. Render thread only. */
+    private void evictPreloads(long budgetBytes) {
+        for (Object victim : textureBudget.selectEvictions(budgetBytes, this::playlistDistance)) {
+            if (!recent.remove(victim)) {
+                synchronized (preloadLock) {
+                    preloadedGifs.values().remove(victim);
+                    preloadedStatics.values().remove(victim);
+                }
+            }
+            if (victim instanceof GifPlayer player) {
+                releaseGif(player);
+            } else {
+                releaseStatic((StaticTexture) victim);
+            }
+            debug(String.format("Evicted preload to fit %.1fMB (%.1fMB used)", budgetBytes / (1024.0 * 1024.0),
+                textureBudget.getUsedBytes() / (1024.0 * 1024.0)));
         }
+    }
+
+    /** How many images ahead of the current one {@code url} is, or MAX_VALUE if it is not queued. */
+    private int playlistDistance(String url) {
+        int index = playlist.indexOf(url);
+        if (index < 0) return Integer.MAX_VALUE;
+        return Math.floorMod(index - currentImageIndex, Math.max(1, playlist.retained()));
+    }
+
+    /** CPU-side pixel memory held by the current and preloaded GIFs. */
+    private long residentNativeBytes() {
+        long bytes = gifPlayer != null ? gifPlayer.getResidentBytes() : 0;
+        for (GifPlayer preloaded : preloadedGifs.values()) {
+            bytes += preloaded.getResidentBytes();
+        }
+        return bytes;
+    }
+
+    /** A decoded static image on the GPU, registered under {@code id}; shown, preloaded or kept for reuse. */
+    private record StaticTexture(Identifier id, UploadedTexture texture, int width, int height, StaticImage.Decoded decoded) {
+        long bytes() {
+            return (long) width * height * 4;
+        }
+    }
+
+    private boolean isLost(Object image) {
+        return image instanceof GifPlayer player ? player.isTextureLost() : ((StaticTexture) image).texture().isLost();
+    }
+
+    /** Frees an image the recently shown cache let go of. */
+    private void releaseRecent(Object image) {
+        if (image instanceof GifPlayer player) {
+            releaseGif(player);
+        } else {
+            releaseStatic((StaticTexture) image);
+        }
+    }
+
+    private void releaseGif(GifPlayer player) {
+        textureBudget.untrack(player);
+        player.destroy();
+    }
 
+    private boolean isSystemConstrained() {
         try {
-            long totalVram = GL11.glGetInteger(0x9047);
-            long usedVram = GL11.glGetInteger(0x9049);
-            lastVramUsage = 100 - ((usedVram * 100.0) / totalVram);
-            
-            Runtime runtime = Runtime.getRuntime();
-            lastMemoryUsage = (runtime.totalMemory() - runtime.freeMemory()) * 100.0 / runtime.maxMemory();
-            
-            boolean overVram = maxVramUsage.get() > 0 && lastVramUsage > maxVramUsage.get();
+            if (MinecraftClient.getInstance().isOnThread()) {
+                Runtime runtime = Runtime.getRuntime();
+                lastMemoryUsage = (runtime.totalMemory() - runtime.freeMemory()) * 100.0 / runtime.maxMemory();
+            }
+
+            double textureUsage = textureUsage();
+            boolean overVram = maxVramUsage.get() > 0 && textureUsage > maxVramUsage.get();
             boolean overRam = lastMemoryUsage > 85;
             
-            debug(String.format("System check - VRAM: %.1f%% (%s), RAM: %.1f%% (%s)",
-                lastVramUsage, overVram ? "OVER" : "OK",
+            debug(String.format("System check - textures: %.1f%% of budget (%s), RAM: %.1f%% (%s)",
+                textureUsage, overVram ? "OVER" : "OK",
                 lastMemoryUsage, overRam ? "OVER" : "OK"));
             
             return adaptiveQuality.get() && (overVram || overRam);
@@ -660,20 +1539,16 @@ public class ImageHUD extends HudElement {
     }
 
     private int calculateSafeReductionFactor(String url, long fileSize) {
-        if (MinecraftClient.getInstance().isOnThread()) {
-            if (isSystemConstrained()) {
-                debug("System constrained - using higher reduction (4)");
-                return 4;
-            }
-            if (fileSize > 5 * 1024 * 1024) {
-                debug("Large file (" + (fileSize/1024/1024) + "MB) - using medium reduction (2)");
-                return 2;
-            }
-            debug("Using default reduction (1)");
-            return 1;
-        } else {
-            return fileSize > 5 * 1024 * 1024 ? 2 : 1;
+        if (isSystemConstrained()) {
+            debug("System constrained - using higher reduction (4)");
+            return 4;
+        }
+        if (fileSize > 5 * 1024 * 1024) {
+            debug("Large file (" + (fileSize/1024/1024) + "MB) - using medium reduction (2)");
+            return 2;
         }
+        debug("Using default reduction (1)");
+        return 1;
     }
 
     private void cleanup() {
@@ -682,32 +1557,8 @@ public class ImageHUD extends HudElement {
             mc.execute(() -> {
                 try {
                     debug("Running cleanup on render thread");
-                    
-                    if (staticTexture != null) {
-                        try {
-                            debug("Cleaning up static texture");
-                            if (MeteorClient.mc.getTextureManager().getTexture(TEXID) != null) {
-                                MeteorClient.mc.getTextureManager().destroyTexture(TEXID);
-                                debug("Destroyed static texture");
-                            }
-                            staticTexture.close();
-                        } catch (Exception e) {
-                            debug("Error closing static texture: " + e.getMessage());
-                        } finally {
-                            staticTexture = null;
-                        }
-                    }
-
-                    if (gifPlayer != null) {
-                        try {
-                            debug("Cleaning up GIF player");
-                            gifPlayer.destroy();
-                        } catch (Exception e) {
-                            debug("Error destroying GIF player: " + e.getMessage());
-                        } finally {
-                            gifPlayer = null;
-                        }
-                    }
+                    uploads.cancelAll();
+                    releaseCurrent();
 
                     synchronized (preloadLock) {
                         debug("Cleaning up " + preloadedGifs.size() + " preloaded GIFs");
@@ -717,7 +1568,7 @@ public class ImageHUD extends HudElement {
                             Map.Entry<String, GifPlayer> entry = it.next();
                             try {
                                 if (entry.getValue() != null) {
-                                    entry.getValue().destroy();
+                                    releaseGif(entry.getValue());
                                     destroyed++;
                                 }
                             } catch (Exception e) {
@@ -726,6 +1577,9 @@ public class ImageHUD extends HudElement {
                             it.remove();
                         }
                         debug("Destroyed " + destroyed + " preloaded GIFs");
+                        preloadedStatics.values().forEach(this::releaseStatic);
+                        recent.clear();
+                        preloadedStatics.clear();
                         preloadQueue.clear();
                         activePreloads = 0;
                     }
@@ -738,20 +1592,86 @@ public class ImageHUD extends HudElement {
         }
     }
 
+    /**
+     * Tears down only what is on screen, leaving preloads in the lookahead window alone.
+     * Render thread only.
+     */
+    private void releaseCurrent() {
+        uploads.cancelAll(UploadScheduler.Priority.CURRENT);
+        // what leaves the screen is kept for when a looping playlist comes back around to it
+        boolean keep = shownUrl != null && recentCacheSize.get() > 0;
+        if (keep) recent.setCapacity(recentCacheBytes());
+        if (staticTexture != null) {
+            try {
+                debug("Cleaning up static texture");
+                if (keep && !staticTexture.texture().isLost()) {
+                    // still on the GPU, so it still counts against the budget
+                    textureBudget.track(staticTexture, shownUrl, TextureBudget.Role.RECENT, staticTexture.bytes());
+                    recent.put(shownUrl, 1, staticTexture, staticTexture.bytes());
+                } else {
+                    releaseStatic(staticTexture);
+                }
+            } catch (Exception e) {
+                debug("Error closing static texture: " + e.getMessage());
+            } finally {
+                staticTexture = null;
+                staticTextureWidth = staticTextureHeight = 0;
+            }
+        }
+
+        if (gifPlayer != null) {
+            try {
+                debug("Cleaning up GIF player");
+                if (keep && !gifPlayer.isTextureLost()) {
+                    textureBudget.track(gifPlayer, shownUrl, TextureBudget.Role.RECENT, gifPlayer.getTextureBytes());
+                    gifPlayer.setPaused(true);
+                    recent.put(shownUrl, shownReduction, gifPlayer, gifPlayer.getTextureBytes());
+                } else {
+                    releaseGif(gifPlayer);
+                }
+            } catch (Exception e) {
+                debug("Error destroying GIF player: " + e.getMessage());
+            } finally {
+                gifPlayer = null;
+            }
+        }
+        shownUrl = null;
+    }
+
     private void forceReload() {
-        synchronized (fetchLock) {
+        // abort transfers, decodes and the page fetch for the old query; the fetch only holds
+        // fetchLock between reads, so this never waits on the network
+        generation.advance();
+        PostStream stale;
+        fetchLock.lock();
+        try {
             debug("Force reload triggered");
-            cleanup();
-            cachedImageUrls.clear();
-            currentPage = 1;
+            stale = postStream;
+            postStream = null;
+            playlist.clear();
+            isFetching = false;
             currentImageIndex = 0;
             hasMorePages = true;
             needsNewFetch = true;
-            
-            if (!paused) {
-                initializePreloading();
-                fetchAllPosts();
-            }
+        } finally {
+            fetchLock.unlock();
+        }
+        // a new source is another host, and a new size other files; the old rate describes neither
+        bandwidth.reset();
+        if (stale != null) {
+            // closing waits for a read in progress to let go of its page
+            Thread.ofVirtual().name("e621-listing-close").start(() -> {
+                try {
+                    stale.close();
+                } catch (IOException ignored) {}
+            });
+        }
+
+        isLoading = false;
+        cleanup();
+        if (!paused) {
+            initializePreloading();
+            fetchMorePosts();
         }
     }
 
@@ -762,7 +1682,7 @@ public class ImageHUD extends HudElement {
     @Override
     public void remove() {
         debug("Removing HUD - cleaning up resources");
-        executor.shutdownNow();
+        work.shutdownNow();
         cleanup();
         super.remove();
     }
@@ -0,0 +1,166 @@
+package anticope.esixtwoone.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A directory of cache entries named by SHA-256 key, with least recently used eviction
+ * against a byte budget. Entries are written to a temp file and moved into place atomically.
+ */
+class CacheDirectory {
+    private final Path dir;
+    private final String extension;
+    // key -> entry size on disk, in access order; guarded by this
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private long budgetBytes;
+    private final AtomicLong evictions = new AtomicLong();
+
+    CacheDirectory(Path dir, String extension, long budgetBytes) {
+        this.dir = dir;
+        this.extension = extension;
+        this.budgetBytes = budgetBytes;
+        try {
+            Files.createDirectories(dir);
+            index();
+        } catch (IOException e) {
+            System.err.println("[CacheDirectory] Failed to index " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /** Rebuilds the LRU order from file modification times and drops unfinished writes. */
+    private void index() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(dir, 2)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+
+        List<Map.Entry<Path, FileTime>> stamped = new ArrayList<>();
+        for (Path file : files) {
+            if (!file.getFileName().toString().endsWith(extension)) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            stamped.add(Map.entry(file, Files.getLastModifiedTime(file)));
+        }
+        stamped.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+
+        synchronized (this) {
+            for (Map.Entry<Path, FileTime> entry : stamped) {
+                String name = entry.getKey().getFileName().toString();
+                long size = Files.size(entry.getKey());
+                entries.put(name.substring(0, name.length() - extension.length()), size);
+                totalBytes += size;
+            }
+        }
+    }
+
+    Path path(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + extension);
+    }
+
+    /** Returns whether {@code key} is present, refreshing its LRU position if so. */
+    boolean touch(String key) {
+        synchronized (this) {
+            // get() rather than containsKey() so the lookup refreshes the entry's LRU position
+            if (entries.get(key) == null) return false;
+        }
+        try {
+            Files.setLastModifiedTime(path(key), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // only affects LRU order after a restart
+        }
+        return true;
+    }
+
+    synchronized boolean fits(long size) {
+        return size <= budgetBytes;
+    }
+
+    Path createTemp(String key) throws IOException {
+        Path parent = path(key).getParent();
+        Files.createDirectories(parent);
+        return Files.createTempFile(parent, key, ".tmp");
+    }
+
+    /** Moves a fully written temp file into place as {@code key}. */
+    void commit(Path temp, String key) throws IOException {
+        long size = Files.size(temp);
+        Files.move(temp, path(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        synchronized (this) {
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evict();
+        }
+    }
+
+    synchronized void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) totalBytes -= size;
+        try {
+            Files.deleteIfExists(path(key));
+        } catch (IOException ignored) {
+        }
+    }
+
+    synchronized void setBudget(long bytes) {
+        if (bytes == budgetBytes) return;
+        budgetBytes = bytes;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            try {
+                Files.deleteIfExists(path(eldest.getKey()));
+            } catch (IOException e) {
+                System.err.println("[CacheDirectory] Failed to evict " + eldest.getKey() + ": " + e.getMessage());
+            }
+            totalBytes -= eldest.getValue();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    static void deleteQuietly(Path temp) {
+        if (temp == null) return;
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+        }
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    static String key(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
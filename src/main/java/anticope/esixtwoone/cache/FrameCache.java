@@ -0,0 +1,314 @@
+package anticope.esixtwoone.cache;
+
+import meteordevelopment.meteorclient.MeteorClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Second cache tier holding GIF frames already decoded and reduced, so a replay skips the
+ * decoder entirely. Entries are keyed by URL and reduction factor.
+ *
+ * <p>Container layout: a header ({@code E6FC}, version, width, height, frame count, index offset),
+ * the frames, then an index of (delay, offset, length, crc) per frame. Each frame is stored as
+ * big-endian ARGB XORed with the previous frame and deflated, so frames must be read in order.</p>
+ */
+public class FrameCache {
+    private static final int MAGIC = 0x45364643; // "E6FC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 5 + 8;
+    private static final int INDEX_ENTRY_SIZE = 4 + 8 + 4 + 8;
+    private static FrameCache instance;
+
+    private final CacheDirectory directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static synchronized FrameCache get() {
+        if (instance == null) {
+            instance = new FrameCache(MeteorClient.FOLDER.toPath().resolve("e621-cache").resolve("frames"));
+        }
+        return instance;
+    }
+
+    FrameCache(Path dir) {
+        this.directory = new CacheDirectory(dir, ".frames", 1024L * 1024L * 1024L);
+    }
+
+    private static String key(String url, int reduction) {
+        return CacheDirectory.key(url + "#" + reduction);
+    }
+
+    /** Opens the cached frames for {@code url} at {@code reduction}, or returns null on a miss. */
+    public Reader open(String url, int reduction) {
+        String key = key(url, reduction);
+        if (!directory.touch(key)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            Reader reader = new Reader(key, directory.path(key));
+            hits.incrementAndGet();
+            return reader;
+        } catch (IOException e) {
+            System.err.println("[FrameCache] Dropping unreadable entry for " + url + ": " + e.getMessage());
+            directory.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /** Drops an entry that failed part way through reading. */
+    public void invalidate(Reader reader) {
+        directory.remove(reader.key);
+    }
+
+    public Writer create(String url, int reduction, int width, int height) throws IOException {
+        return create(url, reduction, width, height, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #create(String, int, int, int)}, but the entry is only worth keeping while its
+     * frames take at most {@code maxBytes}; see {@link Writer#isOverLimit()}.
+     */
+    public Writer create(String url, int reduction, int width, int height, long maxBytes) throws IOException {
+        return new Writer(key(url, reduction), width, height, maxBytes);
+    }
+
+    public void setBudget(long bytes) {
+        directory.setBudget(bytes);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getTotalBytes() {
+        return directory.getTotalBytes();
+    }
+
+    public class Writer implements Closeable {
+        private final String key;
+        private final int width;
+        private final int height;
+        private final long maxBytes;
+        private final Path temp;
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final ByteBuffer raw;
+        private final IntBuffer rawInts;
+        private final int[] previous;
+        private ByteBuffer compressed;
+        private ByteBuffer index = ByteBuffer.allocate(INDEX_ENTRY_SIZE * 64);
+        private long position = HEADER_SIZE;
+        private int frames;
+        private boolean committed;
+
+        private Writer(String key, int width, int height, long maxBytes) throws IOException {
+            this.key = key;
+            this.width = width;
+            this.height = height;
+            this.maxBytes = maxBytes;
+            this.temp = directory.createTemp(key);
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            this.raw = ByteBuffer.allocate(width * height * 4);
+            this.rawInts = raw.asIntBuffer();
+            this.previous = new int[width * height];
+            this.compressed = ByteBuffer.allocate(Math.max(1024, raw.capacity() / 4));
+        }
+
+        public void addFrame(int[] argb, int delay) throws IOException {
+            int count = width * height;
+            rawInts.clear();
+            for (int i = 0; i < count; i++) {
+                int pixel = argb[i];
+                rawInts.put(pixel ^ previous[i]);
+                previous[i] = pixel;
+            }
+
+            deflater.reset();
+            deflater.setInput(raw.clear());
+            deflater.finish();
+            compressed.clear();
+            while (!deflater.finished()) {
+                if (!compressed.hasRemaining()) {
+                    ByteBuffer grown = ByteBuffer.allocate(compressed.capacity() * 2);
+                    compressed = grown.put(compressed.flip());
+                }
+                deflater.deflate(compressed);
+            }
+            compressed.flip();
+
+            CRC32 crc = new CRC32();
+            crc.update(compressed.duplicate());
+            int length = compressed.remaining();
+            while (compressed.hasRemaining()) {
+                position += channel.write(compressed, position);
+            }
+
+            if (index.remaining() < INDEX_ENTRY_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(index.capacity() * 2);
+                index = grown.put(index.flip());
+            }
+            index.putInt(delay).putLong(position - length).putInt(length).putLong(crc.getValue());
+            frames++;
+        }
+
+        /** Whether the frames written so far already take more than the entry was allowed. */
+        public boolean isOverLimit() {
+            return position - HEADER_SIZE > maxBytes;
+        }
+
+        /** Finishes the container and publishes it to the cache, unless it went over its limit. */
+        public void commit() throws IOException {
+            if (frames == 0 || isOverLimit()) return;
+            long indexOffset = position;
+            index.flip();
+            while (index.hasRemaining()) {
+                position += channel.write(index, position);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(width)
+                .putInt(height)
+                .putInt(frames)
+                .putLong(indexOffset)
+                .flip();
+            channel.write(header, 0);
+            channel.force(false);
+            channel.close();
+
+            if (directory.fits(position)) {
+                directory.commit(temp, key);
+                committed = true;
+            }
+        }
+
+        @Override
+        public void close() {
+            deflater.end();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            if (!committed) CacheDirectory.deleteQuietly(temp);
+        }
+    }
+
+    public class Reader implements Closeable {
+        private final String key;
+        private final MappedByteBuffer data;
+        private final Inflater inflater = new Inflater();
+        private final int width;
+        private final int height;
+        private final int frameCount;
+        private final int indexOffset;
+        private final ByteBuffer raw;
+        private final IntBuffer rawInts;
+        private int nextFrame;
+
+        private Reader(String key, Path file) throws IOException {
+            this.key = key;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < HEADER_SIZE || size > Integer.MAX_VALUE) throw new IOException("Bad container size " + size);
+                // the mapping stays valid after the channel is closed
+                this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) throw new IOException("Bad container header");
+            this.width = data.getInt(8);
+            this.height = data.getInt(12);
+            this.frameCount = data.getInt(16);
+            long offset = data.getLong(20);
+            if (width <= 0 || height <= 0 || frameCount <= 0 || (long) width * height > Integer.MAX_VALUE / 4
+                || offset < HEADER_SIZE || offset + (long) frameCount * INDEX_ENTRY_SIZE != data.capacity()) {
+                throw new IOException("Bad container header");
+            }
+            this.indexOffset = (int) offset;
+            this.raw = ByteBuffer.allocate(width * height * 4);
+            this.rawInts = raw.asIntBuffer();
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getFrameCount() {
+            return frameCount;
+        }
+
+        public int getDelay(int frame) {
+            return data.getInt(indexOffset + frame * INDEX_ENTRY_SIZE);
+        }
+
+        /**
+         * Inflates the next frame over {@code argb}, which must still hold the previous frame
+         * returned by this reader (or zeros before the first).
+         *
+         * <p>Frames are inflated into a heap buffer and XORed into {@code argb}, which the caller
+         * then copies into its atlas page; they can't be inflated straight into the page because
+         * each one is only a delta against the previous frame, and the page holds RGBA rather
+         * than the ARGB the delta was taken over.</p>
+         */
+        public void readFrame(int[] argb) throws IOException {
+            if (nextFrame >= frameCount) throw new IOException("No more frames");
+            int entry = indexOffset + nextFrame * INDEX_ENTRY_SIZE;
+            long offset = data.getLong(entry + 4);
+            int length = data.getInt(entry + 12);
+            long checksum = data.getLong(entry + 16);
+            if (offset < HEADER_SIZE || length < 0 || offset + length > indexOffset) throw new IOException("Bad frame index");
+
+            ByteBuffer frame = data.slice((int) offset, length);
+            CRC32 crc = new CRC32();
+            crc.update(frame.duplicate());
+            if (crc.getValue() != checksum) throw new IOException("Checksum mismatch in frame " + nextFrame);
+
+            inflater.reset();
+            inflater.setInput(frame);
+            raw.clear();
+            try {
+                while (raw.hasRemaining() && !inflater.finished()) {
+                    if (inflater.inflate(raw) == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt frame " + nextFrame, e);
+            }
+            if (raw.hasRemaining()) throw new IOException("Short frame " + nextFrame);
+
+            rawInts.clear();
+            int count = width * height;
+            for (int i = 0; i < count; i++) {
+                argb[i] ^= rawInts.get(i);
+            }
+            nextFrame++;
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+    }
+}
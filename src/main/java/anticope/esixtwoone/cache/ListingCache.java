@@ -0,0 +1,248 @@
+package anticope.esixtwoone.cache;
+
+import anticope.esixtwoone.sources.Post;
+import meteordevelopment.meteorclient.MeteorClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Listing pages already fetched, as parsed {@link Post}s, so going back to a recent query does
+ * not hit the network. Entries are keyed by source, normalized tags, size and page, held in
+ * memory and optionally on disk, and served as-is until the TTL runs out; after that the
+ * caller revalidates with the stored ETag. A page only partly read is kept as a prefix.
+ *
+ * <p>Disk layout: a header ({@code E6LC}, version, payload length, crc) and a payload of the
+ * entry fields followed by the posts, each with its variants.</p>
+ */
+public class ListingCache {
+    private static final int MAGIC = 0x45364C43; // "E6LC"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static final int MEMORY_ENTRIES = 64;
+    private static ListingCache instance;
+
+    /**
+     * One page. {@code entries} counts the raw entries of the response that {@code posts}
+     * covers, unusable ones included; when not {@code complete}, the page continues after them.
+     * Unusable entries with an id are kept in {@code posts} as {@link Post#skipped} ones.
+     */
+    public record Entry(List<Post> posts, int entries, boolean complete, String etag, long storedAt) {
+        public boolean isFresh(long ttlMillis) {
+            return System.currentTimeMillis() - storedAt < ttlMillis;
+        }
+
+        public Entry revalidated() {
+            return new Entry(posts, entries, complete, etag, System.currentTimeMillis());
+        }
+    }
+
+    private final CacheDirectory directory;
+    // guarded by itself
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile long ttlMillis = 10 * 60 * 1000L;
+    private volatile boolean persistent = true;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static synchronized ListingCache get() {
+        if (instance == null) {
+            instance = new ListingCache(MeteorClient.FOLDER.toPath().resolve("e621-cache").resolve("listings"));
+        }
+        return instance;
+    }
+
+    private ListingCache(Path dir) {
+        this.directory = new CacheDirectory(dir, ".lst", 32L * 1024L * 1024L);
+    }
+
+    /** The stored page for {@code key}, fresh or not, or null. */
+    public Entry lookup(String key) {
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) return entry;
+        }
+        if (!persistent) return null;
+
+        String diskKey = CacheDirectory.key(key);
+        if (!directory.touch(diskKey)) return null;
+        try {
+            Entry entry = read(directory.path(diskKey));
+            if (entry != null) {
+                remember(key, entry);
+                return entry;
+            }
+            System.err.println("[ListingCache] Dropping corrupt entry for " + key);
+        } catch (IOException e) {
+            System.err.println("[ListingCache] Failed to read entry for " + key + ": " + e.getMessage());
+        }
+        directory.remove(diskKey);
+        return null;
+    }
+
+    public void put(String key, Entry entry) {
+        remember(key, entry);
+        if (persistent) write(key, entry);
+    }
+
+    private void remember(String key, Entry entry) {
+        synchronized (memory) {
+            memory.put(key, entry);
+            if (memory.size() > MEMORY_ENTRIES) {
+                memory.remove(memory.keySet().iterator().next());
+            }
+        }
+    }
+
+    /** Counts how a lookup was answered: from the cache, by a 304, or over the network. */
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordRevalidation() {
+        revalidations.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void setTtl(long millis) {
+        ttlMillis = millis;
+    }
+
+    public long getTtl() {
+        return ttlMillis;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    private void write(String key, Entry entry) {
+        String diskKey = CacheDirectory.key(key);
+        Path temp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(entry.storedAt());
+                out.writeBoolean(entry.complete());
+                out.writeInt(entry.entries());
+                writeString(out, entry.etag());
+                out.writeInt(entry.posts().size());
+                for (Post post : entry.posts()) {
+                    out.writeLong(post.id());
+                    writeString(out, post.url());
+                    writeString(out, post.md5());
+                    out.writeInt(post.width());
+                    out.writeInt(post.height());
+                    out.writeLong(post.fileSize());
+                    writeString(out, post.ext());
+                    out.writeInt(post.variants().size());
+                    for (Post.Variant variant : post.variants()) {
+                        writeString(out, variant.url());
+                        out.writeInt(variant.width());
+                        out.writeInt(variant.height());
+                        out.writeLong(variant.bytes());
+                    }
+                }
+            }
+            byte[] payload = bytes.toByteArray();
+            if (!directory.fits(HEADER_SIZE + (long) payload.length)) return;
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(payload.length)
+                .putLong(crc.getValue());
+
+            temp = directory.createTemp(diskKey);
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(header.array());
+                out.write(payload);
+            }
+            directory.commit(temp, diskKey);
+            temp = null;
+        } catch (IOException e) {
+            System.err.println("[ListingCache] Failed to write entry for " + key + ": " + e.getMessage());
+        } finally {
+            CacheDirectory.deleteQuietly(temp);
+        }
+    }
+
+    private static Entry read(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        if (data.length < HEADER_SIZE) return null;
+        ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+        long length = header.getLong();
+        long checksum = header.getLong();
+        if (length != data.length - HEADER_SIZE) return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(data, HEADER_SIZE, (int) length);
+        if (crc.getValue() != checksum) return null;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, HEADER_SIZE, (int) length))) {
+            long storedAt = in.readLong();
+            boolean complete = in.readBoolean();
+            int entries = in.readInt();
+            String etag = readString(in);
+            int count = in.readInt();
+            List<Post> posts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                String url = readString(in);
+                String md5 = readString(in);
+                int width = in.readInt();
+                int height = in.readInt();
+                long fileSize = in.readLong();
+                String ext = readString(in);
+                int variantCount = in.readInt();
+                List<Post.Variant> variants = new ArrayList<>(variantCount);
+                for (int v = 0; v < variantCount; v++) {
+                    variants.add(new Post.Variant(readString(in), in.readInt(), in.readInt(), in.readLong()));
+                }
+                posts.add(new Post(id, url, md5, width, height, fileSize, ext, List.copyOf(variants)));
+            }
+            return new Entry(Collections.unmodifiableList(posts), entries, complete, etag, storedAt);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
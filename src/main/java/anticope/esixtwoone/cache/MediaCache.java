@@ -0,0 +1,170 @@
+package anticope.esixtwoone.cache;
+
+import meteordevelopment.meteorclient.MeteorClient;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of downloaded media under the Meteor folder. Entries are addressed by the
+ * SHA-256 of their URL, written atomically, checksummed and evicted least recently used first.
+ */
+public class MediaCache {
+    private static final int MAGIC = 0x45364D43; // "E6MC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static MediaCache instance;
+
+    private final CacheDirectory directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static synchronized MediaCache get() {
+        if (instance == null) {
+            instance = new MediaCache(MeteorClient.FOLDER.toPath().resolve("e621-cache").resolve("media"));
+        }
+        return instance;
+    }
+
+    private MediaCache(Path dir) {
+        this.directory = new CacheDirectory(dir, ".bin", 512L * 1024L * 1024L);
+    }
+
+    /** Returns the cached bytes for {@code url}, or null on a miss or a failed integrity check. */
+    public byte[] get(String url) {
+        ByteBuffer data = lookup(url, false);
+        return data != null ? data.array() : null;
+    }
+
+    /**
+     * Like {@link #get(String)}, but reads into an off-heap buffer. The caller owns the result
+     * and frees it with {@link MemoryUtil#memFree}.
+     */
+    public ByteBuffer getDirect(String url) {
+        return lookup(url, true);
+    }
+
+    private ByteBuffer lookup(String url, boolean direct) {
+        String key = CacheDirectory.key(url);
+        if (!directory.touch(key)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            ByteBuffer data = read(directory.path(key), direct);
+            if (data != null) {
+                hits.incrementAndGet();
+                return data;
+            }
+            System.err.println("[MediaCache] Dropping corrupt entry for " + url);
+        } catch (IOException e) {
+            System.err.println("[MediaCache] Failed to read entry for " + url + ": " + e.getMessage());
+        }
+
+        directory.remove(key);
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String url, byte[] data) {
+        put(url, ByteBuffer.wrap(data));
+    }
+
+    /** Stores the remaining bytes of {@code data} without changing its position. */
+    public void put(String url, ByteBuffer data) {
+        int length = data.remaining();
+        if (length == 0 || !directory.fits(HEADER_SIZE + (long) length)) return;
+
+        String key = CacheDirectory.key(url);
+        Path temp = null;
+        try {
+            temp = directory.createTemp(key);
+
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(length)
+                .putLong(crc.getValue())
+                .flip();
+
+            ByteBuffer body = data.duplicate();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = {header, body};
+                while (body.hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(false);
+            }
+            directory.commit(temp, key);
+            temp = null;
+        } catch (IOException e) {
+            System.err.println("[MediaCache] Failed to write entry for " + url + ": " + e.getMessage());
+        } finally {
+            CacheDirectory.deleteQuietly(temp);
+        }
+    }
+
+    public void setBudget(long bytes) {
+        directory.setBudget(bytes);
+    }
+
+    private static ByteBuffer read(Path file, boolean direct) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) return null;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // fill the header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+
+            long length = header.getLong();
+            long checksum = header.getLong();
+            if (length != fileSize - HEADER_SIZE || length > Integer.MAX_VALUE) return null;
+
+            ByteBuffer body = direct ? MemoryUtil.memAlloc((int) length) : ByteBuffer.allocate((int) length);
+            boolean valid = false;
+            try {
+                while (body.hasRemaining() && channel.read(body) >= 0) {
+                    // fill the body
+                }
+                if (body.hasRemaining()) return null;
+                body.flip();
+
+                CRC32 crc = new CRC32();
+                crc.update(body.duplicate());
+                valid = crc.getValue() == checksum;
+                return valid ? body : null;
+            } finally {
+                if (!valid && direct) MemoryUtil.memFree(body);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return directory.getEvictions();
+    }
+
+    public long getTotalBytes() {
+        return directory.getTotalBytes();
+    }
+}
@@ -0,0 +1,87 @@
+package anticope.esixtwoone.sources;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Picks the rendition of a post for {@link Source.Size#auto}: the smallest variant that still
+ * covers the HUD without visible upscaling, stepped down to smaller ones while the measured
+ * bandwidth could not deliver it within the time each image is on screen.
+ */
+public class AutoSize {
+    // a variant upscaled by up to this much still passes as sharp
+    private static final double UPSCALE_TOLERANCE = 1.1;
+    // share of the measured bandwidth one image may use over its time on screen
+    private static final double BANDWIDTH_SHARE = 0.5;
+    // typical JPEG bytes per pixel, for variants of posts without a known file size
+    private static final double BYTES_PER_PIXEL = 0.3;
+
+    /**
+     * The variant of {@code post} to show at {@code displayWidth x displayHeight}
+     * ({@code displayHeight <= 0} keeps the aspect ratio), or null if it has none to choose from.
+     * {@code bytesPerSecond < 0} means bandwidth is unknown and never steps down;
+     * {@code secondsPerImage <= 0} means images stay up until skipped, so there is no deadline.
+     */
+    public static Post.Variant pick(Post post, double displayWidth, double displayHeight, double bytesPerSecond, double secondsPerImage, boolean keepAnimated) {
+        if (post.variants().isEmpty()) return null;
+        List<Post.Variant> variants = new ArrayList<>(post.variants());
+        variants.sort(Comparator.comparingLong(variant -> pixels(post, variant)));
+
+        int chosen = variants.size() - 1;
+        if (keepAnimated && isAnimated(post.ext())) {
+            // only a variant in the original format keeps the animation
+            for (int i = variants.size() - 1; i >= 0; i--) {
+                if (post.ext().equalsIgnoreCase(JsonPosts.extension(variants.get(i).url()))) {
+                    chosen = i;
+                    break;
+                }
+            }
+        } else {
+            for (int i = 0; i < variants.size(); i++) {
+                if (isSharp(post, variants.get(i), displayWidth, displayHeight)) {
+                    chosen = i;
+                    break;
+                }
+            }
+        }
+
+        if (bytesPerSecond > 0 && secondsPerImage > 0) {
+            double budget = bytesPerSecond * secondsPerImage * BANDWIDTH_SHARE;
+            while (chosen > 0 && estimatedBytes(post, variants.get(chosen)) > budget) chosen--;
+        }
+        return variants.get(chosen);
+    }
+
+    private static boolean isSharp(Post post, Post.Variant variant, double displayWidth, double displayHeight) {
+        int width = variant.width() > 0 ? variant.width() : post.width();
+        int height = variant.height() > 0 ? variant.height() : post.height();
+        if (width <= 0 || height <= 0) return true;
+        if (width * UPSCALE_TOLERANCE < displayWidth) return false;
+        return displayHeight <= 0 || height * UPSCALE_TOLERANCE >= displayHeight;
+    }
+
+    /**
+     * The variant's size as listed, otherwise scaled from the original by area. Scaling only
+     * holds within a format; a JPEG sample of a PNG or GIF is far smaller than that.
+     */
+    private static double estimatedBytes(Post post, Post.Variant variant) {
+        if (variant.bytes() > 0) return variant.bytes();
+        long pixels = pixels(post, variant);
+        boolean sameFormat = post.ext() != null && post.ext().equalsIgnoreCase(JsonPosts.extension(variant.url()));
+        if (sameFormat && post.fileSize() > 0 && post.width() > 0 && post.height() > 0) {
+            return post.fileSize() * Math.min(1.0, (double) pixels / ((long) post.width() * post.height()));
+        }
+        return pixels * BYTES_PER_PIXEL;
+    }
+
+    private static long pixels(Post post, Post.Variant variant) {
+        if (variant.width() > 0 && variant.height() > 0) return (long) variant.width() * variant.height();
+        // without dimensions, assume the variant is the original
+        return post.width() > 0 && post.height() > 0 ? (long) post.width() * post.height() : Long.MAX_VALUE / 2;
+    }
+
+    private static boolean isAnimated(String ext) {
+        return "gif".equalsIgnoreCase(ext);
+    }
+}
@@ -0,0 +1,37 @@
+package anticope.esixtwoone.sources;
+
+/**
+ * Download throughput, as a moving average over recent transfers. Transfers too small to get
+ * past connection setup say more about latency than bandwidth and are left out. Each transfer
+ * is timed on its own, so parallel downloads make the estimate err on the low side.
+ */
+public class BandwidthMeter {
+    private static final long MIN_SAMPLE_BYTES = 64 * 1024;
+    // weight of the newest sample; high enough to notice a slowdown within a few images
+    private static final double ALPHA = 0.3;
+
+    private double bytesPerSecond = -1;
+    private long samples;
+
+    /** Records a transfer of {@code bytes} that took {@code nanos} from request to last byte. */
+    public synchronized void record(long bytes, long nanos) {
+        if (bytes < MIN_SAMPLE_BYTES || nanos <= 0) return;
+        double rate = bytes * 1e9 / nanos;
+        bytesPerSecond = bytesPerSecond < 0 ? rate : bytesPerSecond + ALPHA * (rate - bytesPerSecond);
+        samples++;
+    }
+
+    /** The current estimate, or -1 before the first usable transfer. */
+    public synchronized double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    public synchronized void reset() {
+        bytesPerSecond = -1;
+        samples = 0;
+    }
+}
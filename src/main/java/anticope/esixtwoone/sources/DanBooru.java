@@ -1,9 +1,9 @@
 package anticope.esixtwoone.sources;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import meteordevelopment.meteorclient.utils.network.Http;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,32 +17,36 @@ public class Danbooru implements Source {
 
     @Override
     public List<String> getPageImageUrls(String filter, Size size, int page) {
-        List<String> urls = new ArrayList<>();
-        try {
-            String formattedTags = filter.trim()
-                .replace(" ", "+")
-                .replace(":", "%3A");
-
-            String url = String.format("%s/posts.json?tags=%s&limit=320&page=%d", 
-                domain, formattedTags, page);
-            
-            JsonArray posts = Http.get(url)
-                .header("User-Agent", USER_AGENT)
-                .sendJson(JsonArray.class);
-
-            if (posts == null) return urls;
-
-            for (int i = 0; i < posts.size(); i++) {
-                JsonObject post = posts.get(i).getAsJsonObject();
-                String urlStr = getUrlForSize(post, size);
-                if (urlStr != null && !isWebP(urlStr)) {
-                    urls.add(urlStr);
-                }
-            }
+        return Post.urls(getPagePosts(filter, size, page));
+    }
+
+    @Override
+    public List<Post> getPagePosts(String filter, Size size, int page) {
+        try (PostReader reader = openPage(filter, size, new PageCursor(page, -1))) {
+            return reader.readAll();
         } catch (Exception e) {
             System.err.println("[Danbooru] API error: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return urls;
+    }
+
+    @Override
+    public PostReader openPage(String filter, Size size, PageCursor cursor) throws IOException {
+        String formattedTags = JsonPosts.normalizeTags(filter)
+            .replace(" ", "+")
+            .replace(":", "%3A");
+
+        String url = String.format("%s/posts.json?tags=%s&limit=320&page=%s", 
+            domain, formattedTags, cursor.param());
+
+        // the listing is a bare array
+        return JsonPosts.page(url, size, USER_AGENT, null, in -> readPost(in, size), post -> !isWebP(post.url()));
+    }
+
+    @Override
+    public boolean supportsIdCursor(String filter) {
+        // any order: tag other than the default id order makes b<id> pages meaningless
+        return !filter.contains("order:");
     }
 
     @Override
@@ -59,18 +63,85 @@ public class Danbooru implements Source {
     @Override
     public void reset() {}
 
-    private String getUrlForSize(JsonObject post, Size size) {
-        if (post == null) return null;
-        try {
-            switch (size) {
-                case preview: return post.has("preview_file_url") ? post.get("preview_file_url").getAsString() : null;
-                case sample: return post.has("large_file_url") ? post.get("large_file_url").getAsString() : null;
-                case file: return post.has("file_url") ? post.get("file_url").getAsString() : null;
-                default: return null;
+    private Post readPost(JsonReader in, Size size) throws IOException {
+        long id = -1;
+        String url = null;
+        String md5 = null;
+        String ext = null;
+        int width = -1;
+        int height = -1;
+        long fileSize = -1;
+        List<Post.Variant> variants = size == Size.auto ? new ArrayList<>(5) : null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "id" -> id = JsonPosts.nextLong(in);
+                case "md5" -> md5 = JsonPosts.nextString(in);
+                case "file_ext" -> ext = JsonPosts.nextString(in);
+                case "file_size" -> fileSize = JsonPosts.nextLong(in);
+                case "image_width" -> width = JsonPosts.nextInt(in);
+                case "image_height" -> height = JsonPosts.nextInt(in);
+                case "media_asset" -> {
+                    if (variants != null && in.peek() == JsonToken.BEGIN_OBJECT) {
+                        readVariants(in, variants);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                default -> {
+                    if (name.equals(urlField(size))) {
+                        url = JsonPosts.nextString(in);
+                    } else {
+                        in.skipValue();
+                    }
+                }
             }
-        } catch (Exception e) {
-            return null;
         }
+        in.endObject();
+
+        if (variants != null) {
+            variants.removeIf(variant -> isWebP(variant.url()));
+            return Post.withVariants(id, md5, width, height, fileSize, ext, variants);
+        }
+        return url == null ? Post.skipped(id) : new Post(id, url, md5, width, height, fileSize, ext);
+    }
+
+    /** The renditions in {@code media_asset.variants}: thumbnails, the sample and the original. */
+    private void readVariants(JsonReader in, List<Post.Variant> variants) throws IOException {
+        if (!JsonPosts.enterArray(in, "variants")) return;
+        while (in.hasNext()) {
+            String url = null;
+            int width = -1;
+            int height = -1;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "url" -> url = JsonPosts.nextString(in);
+                    case "width" -> width = JsonPosts.nextInt(in);
+                    case "height" -> height = JsonPosts.nextInt(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            variants.add(new Post.Variant(url, width, height, -1));
+        }
+        in.endArray();
+        // the rest of media_asset
+        while (in.hasNext()) {
+            in.nextName();
+            in.skipValue();
+        }
+        in.endObject();
+    }
+
+    private static String urlField(Size size) {
+        return switch (size) {
+            case preview -> "preview_file_url";
+            case sample -> "large_file_url";
+            case file, auto -> "file_url";
+        };
     }
 
     private boolean isWebP(String url) {
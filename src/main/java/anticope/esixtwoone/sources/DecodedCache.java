@@ -0,0 +1,131 @@
+package anticope.esixtwoone.sources;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Size-weighted LRU of images that have already been decoded and uploaded, keyed by URL and
+ * reduction factor, so a looping playlist shows them again without a download or decode.
+ * Entries are handed out with {@link #take(String)} and given back with {@link #put}; whatever
+ * falls out is passed to the release callback. Entries are put, taken and released on the
+ * render thread; {@link #contains(String)} may be asked from anywhere.
+ */
+public class DecodedCache<V> {
+    private record Entry<V>(String url, int reduction, V value, long bytes) {}
+
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Consumer<V> release;
+    private long capacityBytes;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DecodedCache(long capacityBytes, Consumer<V> release) {
+        this.capacityBytes = capacityBytes;
+        this.release = release;
+    }
+
+    private static String key(String url, int reduction) {
+        return reduction + ":" + url;
+    }
+
+    /** Keeps {@code value}, evicting least recently used entries until it fits; released at once if it never can. */
+    public synchronized void put(String url, int reduction, V value, long bytes) {
+        if (bytes > capacityBytes) {
+            release.accept(value);
+            return;
+        }
+        Entry<V> previous = entries.put(key(url, reduction), new Entry<>(url, reduction, value, bytes));
+        usedBytes += bytes;
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+            if (previous.value != value) release.accept(previous.value);
+        }
+        trim();
+    }
+
+    /** Removes and returns the sharpest cached version of {@code url}, or null. Counts a hit or miss. */
+    public synchronized V take(String url) {
+        Entry<V> best = null;
+        for (Entry<V> entry : entries.values()) {
+            if (entry.url.equals(url) && (best == null || entry.reduction < best.reduction)) best = entry;
+        }
+        if (best == null) {
+            misses++;
+            return null;
+        }
+        entries.remove(key(best.url, best.reduction));
+        usedBytes -= best.bytes;
+        hits++;
+        return best.value;
+    }
+
+    /** Drops {@code value} without releasing it, for when its owner frees it; false if it was not cached. */
+    public synchronized boolean remove(V value) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> entry = it.next();
+            if (entry.value != value) continue;
+            it.remove();
+            usedBytes -= entry.bytes;
+            evictions++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean contains(String url) {
+        for (Entry<V> entry : entries.values()) {
+            if (entry.url.equals(url)) return true;
+        }
+        return false;
+    }
+
+    public synchronized void setCapacity(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+        trim();
+    }
+
+    public synchronized void clear() {
+        List<Entry<V>> dropped = new ArrayList<>(entries.values());
+        entries.clear();
+        usedBytes = 0;
+        for (Entry<V> entry : dropped) {
+            release.accept(entry.value);
+        }
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+        while (usedBytes > capacityBytes && it.hasNext()) {
+            Entry<V> eldest = it.next().getValue();
+            it.remove();
+            usedBytes -= eldest.bytes;
+            evictions++;
+            release.accept(eldest.value);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Share of lookups served from the cache, 0 before the first one. */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,279 @@
+package anticope.esixtwoone.sources;
+
+import java.util.Arrays;
+
+/**
+ * Area-averaging downscaler for ARGB rasters. Every output pixel is the coverage-weighted mean
+ * of the source pixels under it, averaged with premultiplied alpha so transparent pixels do not
+ * bleed their colour into the result. Source rows are pulled one at a time, so the full-size
+ * image never has to be materialised as an {@code int[]}.
+ *
+ * <p>An instance precomputes its filter taps and scratch rows for one source/target size and is
+ * meant to be reused for every frame of an animation. Exact integer reductions take a box-filter
+ * path on planar int accumulators, written as flat array loops the JIT can auto-vectorise.
+ * Instances are not thread-safe.</p>
+ */
+public final class Downscaler {
+    /** Supplies source rows as ARGB, in increasing {@code y} order. */
+    public interface RowSource {
+        void readRow(int y, int[] argb);
+    }
+
+    private final int srcWidth;
+    private final int srcHeight;
+    private final int dstWidth;
+    private final int dstHeight;
+    private final int[] row;
+    private final int[] out;
+
+    // exact integer reduction: factors and per-source-column sums
+    private final int boxX;
+    private final int boxY;
+    private final int[] colA;
+    private final int[] colR;
+    private final int[] colG;
+    private final int[] colB;
+
+    // fractional reduction: taps and per-output-column sums
+    private final Taps xTaps;
+    private final Taps yTaps;
+    private final float[] rowA;
+    private final float[] rowR;
+    private final float[] rowG;
+    private final float[] rowB;
+    private final float[] accA;
+    private final float[] accR;
+    private final float[] accG;
+    private final float[] accB;
+
+    public Downscaler(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        if (dstWidth <= 0 || dstHeight <= 0 || dstWidth > srcWidth || dstHeight > srcHeight) {
+            throw new IllegalArgumentException("Cannot downscale " + srcWidth + "x" + srcHeight + " to " + dstWidth + "x" + dstHeight);
+        }
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.dstWidth = dstWidth;
+        this.dstHeight = dstHeight;
+        this.row = new int[srcWidth];
+        this.out = new int[dstWidth * dstHeight];
+
+        boolean box = srcWidth % dstWidth == 0 && srcHeight % dstHeight == 0
+            // keeps premultiplied sums (255 * 255 per pixel) inside an int
+            && (long) (srcWidth / dstWidth) * (srcHeight / dstHeight) <= 32768;
+        if (box) {
+            boxX = srcWidth / dstWidth;
+            boxY = srcHeight / dstHeight;
+            colA = new int[srcWidth];
+            colR = new int[srcWidth];
+            colG = new int[srcWidth];
+            colB = new int[srcWidth];
+            xTaps = yTaps = null;
+            rowA = rowR = rowG = rowB = accA = accR = accG = accB = null;
+        } else {
+            boxX = boxY = 0;
+            colA = colR = colG = colB = null;
+            xTaps = new Taps(srcWidth, dstWidth);
+            yTaps = new Taps(srcHeight, dstHeight);
+            rowA = new float[dstWidth];
+            rowR = new float[dstWidth];
+            rowG = new float[dstWidth];
+            rowB = new float[dstWidth];
+            accA = new float[dstWidth];
+            accR = new float[dstWidth];
+            accG = new float[dstWidth];
+            accB = new float[dstWidth];
+        }
+    }
+
+    /** Width to decode at for an element drawn {@code displayWidth} pixels wide; never upscales. */
+    public static int targetWidth(int srcWidth, double displayWidth) {
+        return Math.max(1, Math.min(srcWidth, (int) Math.ceil(displayWidth)));
+    }
+
+    /** Height to decode at; {@code displayHeight <= 0} keeps the source aspect ratio at {@code targetWidth}. */
+    public static int targetHeight(int srcWidth, int srcHeight, int targetWidth, double displayHeight) {
+        if (displayHeight > 0) return Math.max(1, Math.min(srcHeight, (int) Math.ceil(displayHeight)));
+        return Math.max(1, Math.min(srcHeight, (int) Math.round((double) srcHeight * targetWidth / srcWidth)));
+    }
+
+    public static int[] downscale(int[] argb, int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        return new Downscaler(srcWidth, srcHeight, dstWidth, dstHeight).downscale(argb, srcWidth);
+    }
+
+    public static int[] downscale(RowSource source, int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        return new Downscaler(srcWidth, srcHeight, dstWidth, dstHeight).downscale(source);
+    }
+
+    /**
+     * Downscales the top-left {@code srcWidth x srcHeight} of a raster whose rows are
+     * {@code stride} pixels apart. The result is reused by the next call on this instance.
+     */
+    public int[] downscale(int[] argb, int stride) {
+        return boxX > 0 ? box(argb, stride, null) : area(argb, stride, null);
+    }
+
+    /** Downscales rows pulled from {@code source}. The result is reused by the next call on this instance. */
+    public int[] downscale(RowSource source) {
+        return boxX > 0 ? box(null, 0, source) : area(null, 0, source);
+    }
+
+    private int[] box(int[] argb, int stride, RowSource source) {
+        int area = boxX * boxY;
+        for (int oy = 0; oy < dstHeight; oy++) {
+            Arrays.fill(colA, 0);
+            Arrays.fill(colR, 0);
+            Arrays.fill(colG, 0);
+            Arrays.fill(colB, 0);
+
+            for (int k = 0; k < boxY; k++) {
+                int sy = oy * boxY + k;
+                int[] data;
+                int offset;
+                if (source != null) {
+                    source.readRow(sy, row);
+                    data = row;
+                    offset = 0;
+                } else {
+                    data = argb;
+                    offset = sy * stride;
+                }
+                // vertical pass: plain element-wise loop over whole rows
+                for (int x = 0; x < srcWidth; x++) {
+                    int pixel = data[offset + x];
+                    int a = pixel >>> 24;
+                    colA[x] += a;
+                    colR[x] += a * (pixel >> 16 & 0xFF);
+                    colG[x] += a * (pixel >> 8 & 0xFF);
+                    colB[x] += a * (pixel & 0xFF);
+                }
+            }
+
+            int base = oy * dstWidth;
+            for (int ox = 0; ox < dstWidth; ox++) {
+                int sa = 0, sr = 0, sg = 0, sb = 0;
+                for (int x = ox * boxX, end = x + boxX; x < end; x++) {
+                    sa += colA[x];
+                    sr += colR[x];
+                    sg += colG[x];
+                    sb += colB[x];
+                }
+                out[base + ox] = sa == 0 ? 0 : pack(sa, sr, sg, sb, area);
+            }
+        }
+        return out;
+    }
+
+    private static int pack(int sumA, int sumR, int sumG, int sumB, int area) {
+        int half = sumA >> 1;
+        int alpha = (sumA + (area >> 1)) / area;
+        return alpha << 24
+            | (sumR + half) / sumA << 16
+            | (sumG + half) / sumA << 8
+            | (sumB + half) / sumA;
+    }
+
+    private int[] area(int[] argb, int stride, RowSource source) {
+        int loadedRow = -1;
+        for (int oy = 0; oy < dstHeight; oy++) {
+            Arrays.fill(accA, 0);
+            Arrays.fill(accR, 0);
+            Arrays.fill(accG, 0);
+            Arrays.fill(accB, 0);
+
+            for (int k = 0; k < yTaps.count[oy]; k++) {
+                int sy = yTaps.start[oy] + k;
+                float weight = yTaps.weights[yTaps.offset[oy] + k];
+                // a source row straddling two output rows is only read and reduced once
+                if (sy != loadedRow) {
+                    if (source != null) {
+                        source.readRow(sy, row);
+                        reduceRow(row, 0);
+                    } else {
+                        reduceRow(argb, sy * stride);
+                    }
+                    loadedRow = sy;
+                }
+                for (int x = 0; x < dstWidth; x++) {
+                    accA[x] += weight * rowA[x];
+                    accR[x] += weight * rowR[x];
+                    accG[x] += weight * rowG[x];
+                    accB[x] += weight * rowB[x];
+                }
+            }
+
+            int base = oy * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                float a = accA[x];
+                if (a <= 0) {
+                    out[base + x] = 0;
+                    continue;
+                }
+                int alpha = Math.min(255, Math.round(a));
+                int r = Math.min(255, Math.round(accR[x] / a));
+                int g = Math.min(255, Math.round(accG[x] / a));
+                int b = Math.min(255, Math.round(accB[x] / a));
+                out[base + x] = alpha << 24 | r << 16 | g << 8 | b;
+            }
+        }
+        return out;
+    }
+
+    /** Horizontally reduces one source row into premultiplied planar channels. */
+    private void reduceRow(int[] data, int offset) {
+        for (int ox = 0; ox < dstWidth; ox++) {
+            float sa = 0, sr = 0, sg = 0, sb = 0;
+            int start = offset + xTaps.start[ox];
+            int tap = xTaps.offset[ox];
+            for (int k = 0; k < xTaps.count[ox]; k++) {
+                int pixel = data[start + k];
+                float wa = xTaps.weights[tap + k] * (pixel >>> 24);
+                sa += wa;
+                sr += wa * (pixel >> 16 & 0xFF);
+                sg += wa * (pixel >> 8 & 0xFF);
+                sb += wa * (pixel & 0xFF);
+            }
+            rowA[ox] = sa;
+            rowR[ox] = sr;
+            rowG[ox] = sg;
+            rowB[ox] = sb;
+        }
+    }
+
+    public int getTargetWidth() {
+        return dstWidth;
+    }
+
+    public int getTargetHeight() {
+        return dstHeight;
+    }
+
+    /** Source span and normalised coverage weights for each output index along one axis. */
+    private static final class Taps {
+        final int[] start;
+        final int[] count;
+        final int[] offset;
+        final float[] weights;
+
+        Taps(int srcSize, int dstSize) {
+            double scale = (double) srcSize / dstSize;
+            start = new int[dstSize];
+            count = new int[dstSize];
+            offset = new int[dstSize];
+            weights = new float[dstSize * ((int) Math.ceil(scale) + 1)];
+
+            int used = 0;
+            for (int o = 0; o < dstSize; o++) {
+                double lo = o * scale;
+                double hi = Math.min(srcSize, (o + 1) * scale);
+                int first = (int) lo;
+                int last = Math.min(srcSize, (int) Math.ceil(hi));
+                start[o] = first;
+                count[o] = last - first;
+                offset[o] = used;
+                for (int i = first; i < last; i++) {
+                    weights[used++] = (float) ((Math.min(i + 1, hi) - Math.max(i, lo)) / scale);
+                }
+            }
+        }
+    }
+}
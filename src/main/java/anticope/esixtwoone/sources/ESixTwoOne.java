@@ -1,9 +1,9 @@
 package anticope.esixtwoone.sources;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import meteordevelopment.meteorclient.utils.network.Http;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,35 +17,35 @@ public class ESixTwoOne implements Source {
 
     @Override
     public List<String> getPageImageUrls(String filter, Size size, int page) {
-        List<String> urls = new ArrayList<>();
-        try {
-            String formattedTags = filter.trim()
-                .replace(" ", "+")
-                .replace(":", "%3A");
-
-            String url = String.format("%s/posts.json?tags=%s&limit=320&page=%d", 
-                domain, formattedTags, page);
-            
-            JsonObject result = Http.get(url)
-                .header("User-Agent", USER_AGENT)
-                .sendJson(JsonObject.class);
-
-            if (result == null || !result.has("posts")) {
-                return urls;
-            }
+        return Post.urls(getPagePosts(filter, size, page));
+    }
 
-            JsonArray posts = result.getAsJsonArray("posts");
-            for (int i = 0; i < posts.size(); i++) {
-                JsonObject post = posts.get(i).getAsJsonObject();
-                String urlStr = getUrlForSize(post, size);
-                if (urlStr != null && !isWebP(urlStr)) {
-                    urls.add(urlStr);
-                }
-            }
+    @Override
+    public List<Post> getPagePosts(String filter, Size size, int page) {
+        try (PostReader reader = openPage(filter, size, new PageCursor(page, -1))) {
+            return reader.readAll();
         } catch (Exception e) {
             System.err.println("[E621] API error: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return urls;
+    }
+
+    @Override
+    public PostReader openPage(String filter, Size size, PageCursor cursor) throws IOException {
+        String formattedTags = JsonPosts.normalizeTags(filter)
+            .replace(" ", "+")
+            .replace(":", "%3A");
+
+        String url = String.format("%s/posts.json?tags=%s&limit=320&page=%s", 
+            domain, formattedTags, cursor.param());
+
+        return JsonPosts.page(url, size, USER_AGENT, "posts", in -> readPost(in, size), post -> !isWebP(post.url()));
+    }
+
+    @Override
+    public boolean supportsIdCursor(String filter) {
+        // any order: tag other than the default id order makes b<id> pages meaningless
+        return !filter.contains("order:");
     }
 
     @Override
@@ -64,18 +64,74 @@ public class ESixTwoOne implements Source {
         // Reset any internal state if needed
     }
 
-    private String getUrlForSize(JsonObject post, Size size) {
-        if (post == null) return null;
-        try {
-            switch (size) {
-                case preview: return post.has("preview") ? post.getAsJsonObject("preview").get("url").getAsString() : null;
-                case sample: return post.has("sample") ? post.getAsJsonObject("sample").get("url").getAsString() : null;
-                case file: return post.has("file") ? post.getAsJsonObject("file").get("url").getAsString() : null;
-                default: return null;
+    Post readPost(JsonReader in, Size size) throws IOException {
+        long id = -1;
+        String url = null;
+        String md5 = null;
+        String ext = null;
+        int width = -1;
+        int height = -1;
+        long fileSize = -1;
+        String fileUrl = null;
+        List<Post.Variant> variants = size == Size.auto ? new ArrayList<>(3) : null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("id")) {
+                id = JsonPosts.nextLong(in);
+            } else if (name.equals("file") && in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "width" -> width = JsonPosts.nextInt(in);
+                        case "height" -> height = JsonPosts.nextInt(in);
+                        case "ext" -> ext = JsonPosts.nextString(in);
+                        case "size" -> fileSize = JsonPosts.nextLong(in);
+                        case "md5" -> md5 = JsonPosts.nextString(in);
+                        case "url" -> fileUrl = JsonPosts.nextString(in);
+                        default -> in.skipValue();
+                    }
+                }
+                in.endObject();
+                if (size == Size.file) url = fileUrl;
+            } else if ((name.equals("preview") || name.equals("sample")) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                Post.Variant variant = readVariant(in);
+                if (variants != null) {
+                    variants.add(variant);
+                } else if (name.equals(size.name())) {
+                    url = variant.url();
+                }
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (variants != null) {
+            variants.add(new Post.Variant(fileUrl, width, height, fileSize));
+            variants.removeIf(variant -> isWebP(variant.url()));
+            return Post.withVariants(id, md5, width, height, fileSize, ext, variants);
+        }
+        return url == null ? Post.skipped(id) : new Post(id, url, md5, width, height, fileSize, ext);
+    }
+
+    /** The {@code url} and dimensions of a {@code preview} or {@code sample} object. */
+    private Post.Variant readVariant(JsonReader in) throws IOException {
+        String url = null;
+        int width = -1;
+        int height = -1;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "url" -> url = JsonPosts.nextString(in);
+                case "width" -> width = JsonPosts.nextInt(in);
+                case "height" -> height = JsonPosts.nextInt(in);
+                default -> in.skipValue();
             }
-        } catch (Exception e) {
-            return null;
         }
+        in.endObject();
+        return new Post.Variant(url, width, height, -1);
     }
 
     private boolean isWebP(String url) {
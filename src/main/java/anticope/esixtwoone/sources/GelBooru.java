@@ -1,9 +1,8 @@
 package anticope.esixtwoone.sources;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import meteordevelopment.meteorclient.utils.network.Http;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,29 +16,25 @@ public class Gelbooru implements Source {
 
     @Override
     public List<String> getPageImageUrls(String filter, Size size, int page) {
-        List<String> urls = new ArrayList<>();
-        try {
-            String url = String.format("%s/index.php?page=dapi&s=post&q=index&json=1&tags=%s&pid=%d",
-                domain, filter.trim().replace(" ", "+"), page-1);
-            
-            JsonObject result = Http.get(url)
-                .header("User-Agent", USER_AGENT)
-                .sendJson(JsonObject.class);
-
-            if (result != null && result.has("post")) {
-                JsonArray posts = result.getAsJsonArray("post");
-                for (int i = 0; i < posts.size(); i++) {
-                    JsonObject post = posts.get(i).getAsJsonObject();
-                    String urlStr = getUrlForSize(post, size);
-                    if (urlStr != null && isSupportedFormat(urlStr)) {
-                        urls.add(urlStr);
-                    }
-                }
-            }
+        return Post.urls(getPagePosts(filter, size, page));
+    }
+
+    @Override
+    public List<Post> getPagePosts(String filter, Size size, int page) {
+        try (PostReader reader = openPage(filter, size, new PageCursor(page, -1))) {
+            return reader.readAll();
         } catch (Exception e) {
             System.err.println("[Gelbooru] API error: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return urls;
+    }
+
+    @Override
+    public PostReader openPage(String filter, Size size, PageCursor cursor) throws IOException {
+        String url = String.format("%s/index.php?page=dapi&s=post&q=index&json=1&tags=%s&pid=%d",
+            domain, JsonPosts.normalizeTags(filter).replace(" ", "+"), cursor.page() - 1);
+
+        return JsonPosts.page(url, size, USER_AGENT, "post", in -> readPost(in, size), post -> isSupportedFormat(post.url()));
     }
 
     @Override
@@ -56,14 +51,63 @@ public class Gelbooru implements Source {
     @Override
     public void reset() {}
 
-    private String getUrlForSize(JsonObject post, Size size) {
-        if (post == null) return null;
-        switch (size) {
-            case preview: return post.has("preview_url") ? post.get("preview_url").getAsString() : null;
-            case sample: return post.has("sample_url") ? post.get("sample_url").getAsString() : null;
-            case file: return post.has("file_url") ? post.get("file_url").getAsString() : null;
-            default: return null;
+    private Post readPost(JsonReader in, Size size) throws IOException {
+        long id = -1;
+        String url = null;
+        String md5 = null;
+        String ext = null;
+        int width = -1;
+        int height = -1;
+        long fileSize = -1;
+        // preview, sample, file; only filled in for auto
+        String[] urls = new String[3];
+        int[] widths = {-1, -1, -1};
+        int[] heights = {-1, -1, -1};
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "id" -> id = JsonPosts.nextLong(in);
+                case "md5" -> md5 = JsonPosts.nextString(in);
+                case "width" -> width = JsonPosts.nextInt(in);
+                case "height" -> height = JsonPosts.nextInt(in);
+                case "image" -> ext = JsonPosts.extension(JsonPosts.nextString(in));
+                case "preview_url", "sample_url", "file_url" -> {
+                    String value = JsonPosts.nextString(in);
+                    if (size == Size.auto) urls[variantIndex(name)] = value;
+                    if (name.equals(urlField(size))) url = value;
+                }
+                case "preview_width", "sample_width" -> widths[variantIndex(name)] = JsonPosts.nextInt(in);
+                case "preview_height", "sample_height" -> heights[variantIndex(name)] = JsonPosts.nextInt(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (size == Size.auto) {
+            widths[2] = width;
+            heights[2] = height;
+            List<Post.Variant> variants = new ArrayList<>(3);
+            for (int i = 0; i < urls.length; i++) {
+                // posts without a sample list it with an empty url and zero dimensions
+                if (isSupportedFormat(urls[i])) variants.add(new Post.Variant(urls[i], widths[i], heights[i], -1));
+            }
+            return Post.withVariants(id, md5, width, height, fileSize, ext, variants);
         }
+        return url == null ? Post.skipped(id) : new Post(id, url, md5, width, height, fileSize, ext);
+    }
+
+    private static String urlField(Size size) {
+        return switch (size) {
+            case preview -> "preview_url";
+            case sample -> "sample_url";
+            case file, auto -> "file_url";
+        };
+    }
+
+    private static int variantIndex(String field) {
+        return field.startsWith("preview") ? 0 : field.startsWith("sample") ? 1 : 2;
     }
 
     private boolean isSupportedFormat(String url) {
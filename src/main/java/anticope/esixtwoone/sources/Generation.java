@@ -0,0 +1,89 @@
+package anticope.esixtwoone.sources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out a {@link Token} per query; work started under a token is abandoned once the query
+ * changes. Advancing cancels the old token, which closes any streams registered with it so
+ * blocked transfers fail straight away instead of running to completion.
+ */
+public class Generation {
+    private final AtomicReference<Token> current = new AtomicReference<>(new Token(0));
+
+    public Token current() {
+        return current.get();
+    }
+
+    /** Starts a new generation and cancels everything running under the previous one. */
+    public synchronized Token advance() {
+        Token previous = current.get();
+        Token next = new Token(previous.id + 1);
+        current.set(next);
+        previous.cancel();
+        return next;
+    }
+
+    public static final class Token {
+        private final int id;
+        private final List<Closeable> resources = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        private Token(int id) {
+            this.id = id;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void throwIfCancelled() {
+            if (cancelled) throw new CancellationException("Generation " + id + " was superseded");
+        }
+
+        /** Closes {@code resource} on cancellation until it is unregistered; closes it at once if already cancelled. */
+        public <T extends Closeable> T register(T resource) {
+            synchronized (resources) {
+                if (!cancelled) {
+                    resources.add(resource);
+                    return resource;
+                }
+            }
+            closeQuietly(resource);
+            return resource;
+        }
+
+        public void unregister(Closeable resource) {
+            synchronized (resources) {
+                resources.remove(resource);
+            }
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        private void cancel() {
+            List<Closeable> toClose;
+            synchronized (resources) {
+                cancelled = true;
+                toClose = new ArrayList<>(resources);
+                resources.clear();
+            }
+            for (Closeable resource : toClose) {
+                closeQuietly(resource);
+            }
+        }
+
+        private static void closeQuietly(Closeable resource) {
+            try {
+                resource.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package anticope.esixtwoone.sources;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.texture.NativeImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs equally sized GIF frames into a grid on as few texture pages as the driver allows,
+ * so playback only has to move UVs instead of re-registering a texture every frame.
+ */
+public class GifAtlas {
+    // keeps a single page allocation at 64MB even on drivers that allow 16k textures
+    private static final int PAGE_LIMIT = 4096;
+    // the smallest maximum texture size OpenGL 3.2 allows, until the driver has been asked
+    private static final int GUARANTEED_LIMIT = 1024;
+    private static volatile int textureLimit = GUARANTEED_LIMIT;
+
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int frameCount;
+    private final int columns;
+    private final int framesPerPage;
+    private final List<NativeImage> pages = new ArrayList<>();
+
+    public GifAtlas(int frameWidth, int frameHeight, int frameCount) {
+        int limit = maxFrameSize();
+        if (frameWidth > limit || frameHeight > limit) {
+            throw new IllegalArgumentException("Frame " + frameWidth + "x" + frameHeight + " exceeds the " + limit + "px page limit");
+        }
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.frameCount = Math.max(1, frameCount);
+        this.columns = Math.max(1, Math.min(this.frameCount, limit / frameWidth));
+        this.framesPerPage = columns * Math.max(1, limit / frameHeight);
+    }
+
+    /**
+     * Asks the driver for its texture size limit, which needs the GL context. Render thread only;
+     * call it once before decoding starts.
+     */
+    public static void readTextureLimit() {
+        textureLimit = Math.max(GUARANTEED_LIMIT, Math.min(RenderSystem.maxSupportedTextureSize(), PAGE_LIMIT));
+    }
+
+    /**
+     * Largest frame width or height a page can hold; larger GIFs have to be decoded reduced.
+     * Safe from any thread, since it only reads what {@link #readTextureLimit()} found.
+     */
+    public static int maxFrameSize() {
+        return textureLimit;
+    }
+
+    /** Writes frame {@code index} into its cell, allocating the page on first use. */
+    public void setFrame(int index, int[] argb) {
+        if (index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + index + " outside atlas of " + frameCount);
+        }
+        int page = index / framesPerPage;
+        while (pages.size() <= page) {
+            pages.add(allocatePage(pages.size()));
+        }
+        PixelTransfer.copy(argb, 0, frameWidth, pages.get(page), cellX(index), cellY(index), frameWidth, frameHeight);
+    }
+
+    private NativeImage allocatePage(int page) {
+        int frames = Math.min(framesPerPage, frameCount - page * framesPerPage);
+        int width = Math.min(frames, columns) * frameWidth;
+        int height = ((frames + columns - 1) / columns) * frameHeight;
+        return new NativeImage(width, height, false);
+    }
+
+    public List<NativeImage> getPages() {
+        return pages;
+    }
+
+    public int getPage(int index) {
+        return index / framesPerPage;
+    }
+
+    public float getU1(int index) {
+        return (float) cellX(index) / pages.get(getPage(index)).getWidth();
+    }
+
+    public float getV1(int index) {
+        return (float) cellY(index) / pages.get(getPage(index)).getHeight();
+    }
+
+    public float getU2(int index) {
+        return (float) (cellX(index) + frameWidth) / pages.get(getPage(index)).getWidth();
+    }
+
+    public float getV2(int index) {
+        return (float) (cellY(index) + frameHeight) / pages.get(getPage(index)).getHeight();
+    }
+
+    public long getByteSize() {
+        long bytes = 0;
+        for (NativeImage page : pages) {
+            bytes += (long) page.getWidth() * page.getHeight() * 4;
+        }
+        return bytes;
+    }
+
+    public void close() {
+        pages.forEach(NativeImage::close);
+        pages.clear();
+    }
+
+    private int cellX(int index) {
+        return (index % framesPerPage) % columns * frameWidth;
+    }
+
+    private int cellY(int index) {
+        return (index % framesPerPage) / columns * frameHeight;
+    }
+}
@@ -1,102 +1,448 @@
 package anticope.esixtwoone.sources;
 
-import net.minecraft.client.texture.NativeImage;
-
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.metadata.IIOMetadata;
-import javax.imageio.metadata.IIOMetadataNode;
-import javax.imageio.stream.ImageInputStream;
-import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
+/**
+ * Streaming GIF decoder. Frames are composited onto a single reusable ARGB canvas and handed
+ * out one at a time, so the first frame is ready as soon as its own bytes have been read.
+ */
 public class GifDecoder {
-    public static List<GifFrame> readGifFrames(InputStream inputStream) throws IOException {
-        try (ImageInputStream imgStream = ImageIO.createImageInputStream(inputStream)) {
-            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
-            if (!readers.hasNext()) {
-                throw new IOException("No GIF ImageReader found");
+    private static final int MAX_CODES = 4096;
+    private static final int MAX_PIXELS = 64 * 1024 * 1024;
+    private static final int DEFAULT_DELAY = 100;
+    private static final int[] INTERLACE_START = {0, 4, 2, 1};
+    private static final int[] INTERLACE_STEP = {8, 8, 4, 2};
+
+    private final InputStream in;
+    private final int width;
+    private final int height;
+    private final int[] globalPalette;
+    private int[] canvas;
+    private final int[] localPalette = new int[256];
+    private int[] saved;
+
+    // LZW tables, shared by every frame
+    private final short[] prefix = new short[MAX_CODES];
+    private final byte[] suffix = new byte[MAX_CODES];
+    private final byte[] pixelStack = new byte[MAX_CODES + 1];
+    private final byte[] block = new byte[256];
+    private byte[] indices = new byte[0];
+
+    // Graphic control extension for the upcoming image
+    private int disposal;
+    private int delay;
+    private boolean transparent;
+    private int transparentIndex;
+
+    // Previous frame, disposed before the next one is drawn
+    private int lastDisposal;
+    private int lastX, lastY, lastW, lastH;
+
+    private int frameDelay = DEFAULT_DELAY;
+    private int frameCount;
+    private boolean finished;
+
+    public GifDecoder(InputStream input) throws IOException {
+        this.in = input instanceof BufferedInputStream || input instanceof ByteArrayInputStream
+            ? input : new BufferedInputStream(input);
+
+        byte[] header = new byte[6];
+        readFully(header, 6);
+        if (header[0] != 'G' || header[1] != 'I' || header[2] != 'F' || header[3] != '8') {
+            throw new IOException("Not a GIF stream");
+        }
+
+        this.width = readShort();
+        this.height = readShort();
+        int packed = readByte();
+        readByte(); // background color index, disposal restores to transparent like browsers do
+        readByte(); // pixel aspect ratio
+
+        if (width == 0 || height == 0 || (long) width * height > MAX_PIXELS) {
+            throw new IOException("Unsupported GIF size " + width + "x" + height);
+        }
+
+        this.globalPalette = (packed & 0x80) != 0 ? readPalette(2 << (packed & 7), new int[256]) : null;
+    }
+
+    /**
+     * Decodes the next frame onto the canvas.
+     * @return false once the trailer or the end of the stream has been reached
+     */
+    public boolean advance() throws IOException {
+        if (finished) return false;
+        if (canvas == null) canvas = new int[width * height];
+        disposePrevious();
+
+        while (true) {
+            int code = in.read();
+            switch (code) {
+                case 0x21 -> readExtension();
+                case 0x2C -> {
+                    readImage();
+                    frameCount++;
+                    return true;
+                }
+                default -> {
+                    // 0x3B trailer, end of stream or trailing garbage
+                    finished = true;
+                    return false;
+                }
+            }
+        }
+    }
+
+    /** Moves past the next frame without decoding or compositing it. */
+    public boolean skip() throws IOException {
+        if (finished) return false;
+
+        while (true) {
+            int code = in.read();
+            switch (code) {
+                case 0x21 -> {
+                    readByte();
+                    skipBlocks();
+                }
+                case 0x2C -> {
+                    skipBytes(8); // frame rectangle
+                    int packed = readByte();
+                    if ((packed & 0x80) != 0) {
+                        skipBytes((2 << (packed & 7)) * 3);
+                    }
+                    readByte(); // LZW minimum code size
+                    skipBlocks();
+                    frameCount++;
+                    return true;
+                }
+                default -> {
+                    finished = true;
+                    return false;
+                }
+            }
+        }
+    }
+
+    /** Counts frames by walking the block structure only, which costs a fraction of a decode. */
+    public static int countFrames(byte[] data) throws IOException {
+        return countFrames(data, Integer.MAX_VALUE);
+    }
+
+    /** Like {@link #countFrames(byte[])}, but stops walking once {@code limit} frames are found. */
+    public static int countFrames(byte[] data, int limit) throws IOException {
+        GifDecoder decoder = new GifDecoder(new ByteArrayInputStream(data));
+        try {
+            while (decoder.getFrameCount() < limit && decoder.skip()) {
+                // just walking blocks
             }
-            ImageReader reader = readers.next();
-            reader.setInput(imgStream, false, false);
-
-            int frameCount = reader.getNumImages(true);
-            List<GifFrame> frames = new ArrayList<>(frameCount);
-
-            for (int i = 0; i < frameCount; i++) {
-                try {
-                    BufferedImage buf = reader.read(i);
-                    IIOMetadata metadata = reader.getImageMetadata(i);
-                    int delay = getFrameDelay(metadata);
-
-                    NativeImage nativeImg = bufferedImageToNativeImage(buf);
-                    frames.add(new GifFrame(nativeImg, delay));
-                } catch (Exception e) {
-                    throw new IOException("Failed to read GIF frame index " + i, e);
+        } catch (EOFException ignored) {
+            // truncated file, the frames seen so far still count
+        }
+        return decoder.getFrameCount();
+    }
+
+    /** Live canvas in ARGB order. Only valid until the next call to {@link #advance()}. */
+    public int[] getCanvas() {
+        return canvas;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Delay of the most recently decoded frame in milliseconds. */
+    public int getDelay() {
+        return frameDelay;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    private void disposePrevious() {
+        if (lastDisposal == 2) {
+            for (int y = lastY; y < lastY + lastH; y++) {
+                int row = y * width;
+                for (int x = lastX; x < lastX + lastW; x++) {
+                    canvas[row + x] = 0;
                 }
             }
+        } else if (lastDisposal == 3 && saved != null) {
+            for (int y = 0; y < lastH; y++) {
+                System.arraycopy(saved, y * lastW, canvas, (lastY + y) * width + lastX, lastW);
+            }
+        }
+        lastDisposal = 0;
+    }
+
+    private void readExtension() throws IOException {
+        int label = readByte();
+        if (label == 0xF9) {
+            int length = readBlock();
+            if (length >= 4) {
+                int packed = block[0] & 0xFF;
+                disposal = (packed >> 2) & 7;
+                transparent = (packed & 1) != 0;
+                delay = (block[1] & 0xFF) | (block[2] & 0xFF) << 8;
+                transparentIndex = block[3] & 0xFF;
+            }
+            if (length > 0) skipBlocks();
+        } else {
+            skipBlocks();
+        }
+    }
+
+    private void readImage() throws IOException {
+        int ix = readShort();
+        int iy = readShort();
+        int iw = readShort();
+        int ih = readShort();
+        int packed = readByte();
+        boolean interlace = (packed & 0x40) != 0;
+
+        int[] palette;
+        if ((packed & 0x80) != 0) {
+            palette = readPalette(2 << (packed & 7), localPalette);
+        } else {
+            palette = globalPalette != null ? globalPalette : localPalette;
+        }
+
+        // Clip the frame rectangle to the logical screen
+        int cx = Math.min(ix, width);
+        int cy = Math.min(iy, height);
+        int cw = Math.min(iw, width - cx);
+        int ch = Math.min(ih, height - cy);
+
+        if (disposal == 3 && cw > 0 && ch > 0) {
+            if (saved == null || saved.length < cw * ch) saved = new int[cw * ch];
+            for (int y = 0; y < ch; y++) {
+                System.arraycopy(canvas, (cy + y) * width + cx, saved, y * cw, cw);
+            }
+        }
 
-            reader.dispose();
-            return frames;
+        if (cw > 0 && ch > 0) {
+            decodeRows(palette, ix, iy, iw, ih, ch, interlace);
+        } else {
+            // entirely off screen
+            readByte();
+            skipBlocks();
         }
+
+        int ms = delay * 10;
+        frameDelay = ms < 20 ? DEFAULT_DELAY : ms;
+        lastDisposal = cw > 0 && ch > 0 ? disposal : 0;
+        lastX = cx;
+        lastY = cy;
+        lastW = cw;
+        lastH = ch;
+
+        disposal = 0;
+        delay = 0;
+        transparent = false;
+    }
+
+    /** The frame row the {@code index}-th row in the data lands on. */
+    private static int rowOf(int index, int ih, boolean interlace) {
+        if (!interlace) return index;
+        int pass0 = (ih + 7) / 8;
+        if (index < pass0) return index * 8;
+        index -= pass0;
+        int pass1 = (ih + 3) / 8;
+        if (index < pass1) return 4 + index * 8;
+        index -= pass1;
+        int pass2 = (ih + 1) / 4;
+        if (index < pass2) return 2 + index * 4;
+        return 1 + (index - pass2) * 2;
     }
 
-    private static int getFrameDelay(IIOMetadata metadata) {
-        String format = metadata.getNativeMetadataFormatName();
-        if (format == null) {
-            return 100;
+    /**
+     * LZW-decodes the image data a row at a time and draws the rows that land on the screen,
+     * {@code ch} of them. The descriptor's size is never allocated for: a frame far larger than
+     * the screen costs one row of buffer, and decoding stops after the last visible row.
+     */
+    private void decodeRows(int[] palette, int ix, int iy, int iw, int ih, int ch, boolean interlace) throws IOException {
+        if (indices.length < iw) indices = new byte[iw];
+        int lastRow = ih - 1;
+        while (rowOf(lastRow, ih, interlace) >= ch) lastRow--;
+
+        int dataSize = readByte();
+        if (dataSize < 1 || dataSize > 11) {
+            skipBlocks();
+            return;
+        }
+
+        int clear = 1 << dataSize;
+        int endOfInformation = clear + 1;
+        int available = clear + 2;
+        int oldCode = -1;
+        int codeSize = dataSize + 1;
+        int codeMask = (1 << codeSize) - 1;
+        for (int code = 0; code < clear; code++) {
+            prefix[code] = 0;
+            suffix[code] = (byte) code;
         }
-        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
-        // look for GraphicControlExtension
-        IIOMetadataNode gceNode = null;
-        for (int i = 0; i < root.getLength(); i++) {
-            if (root.item(i) instanceof IIOMetadataNode) {
-                IIOMetadataNode node = (IIOMetadataNode) root.item(i);
-                if ("GraphicControlExtension".equals(node.getNodeName())) {
-                    gceNode = node;
-                    break;
+
+        int datum = 0, bits = 0, count = 0, blockIndex = 0;
+        int first = 0, top = 0, row = 0, column = 0;
+        boolean terminated = false;
+
+        while (row <= lastRow) {
+            if (top == 0) {
+                if (bits < codeSize) {
+                    if (count == 0) {
+                        count = readBlock();
+                        if (count <= 0) {
+                            terminated = true;
+                            break;
+                        }
+                        blockIndex = 0;
+                    }
+                    datum += (block[blockIndex++] & 0xFF) << bits;
+                    bits += 8;
+                    count--;
+                    continue;
+                }
+
+                int code = datum & codeMask;
+                datum >>= codeSize;
+                bits -= codeSize;
+
+                if (code > available || code == endOfInformation) break;
+                if (code == clear) {
+                    codeSize = dataSize + 1;
+                    codeMask = (1 << codeSize) - 1;
+                    available = clear + 2;
+                    oldCode = -1;
+                    continue;
+                }
+                if (oldCode == -1) {
+                    pixelStack[top++] = suffix[code];
+                    oldCode = code;
+                    first = code;
+                    continue;
                 }
+
+                int inCode = code;
+                if (code == available) {
+                    pixelStack[top++] = (byte) first;
+                    code = oldCode;
+                }
+                while (code > clear) {
+                    pixelStack[top++] = suffix[code];
+                    code = prefix[code];
+                }
+                first = suffix[code] & 0xFF;
+                pixelStack[top++] = (byte) first;
+
+                // A full table is kept as-is until the encoder sends a clear code
+                if (available < MAX_CODES) {
+                    prefix[available] = (short) oldCode;
+                    suffix[available] = (byte) first;
+                    available++;
+                    if ((available & codeMask) == 0 && available < MAX_CODES) {
+                        codeSize++;
+                        codeMask += available;
+                    }
+                }
+                oldCode = inCode;
+            }
+
+            top--;
+            indices[column++] = pixelStack[top];
+            if (column == iw) {
+                drawRow(palette, ix, iy + rowOf(row, ih, interlace), column);
+                row++;
+                column = 0;
             }
         }
-        if (gceNode == null) {
-            return 100;
+
+        // a row cut short by truncated data keeps the pixels it got
+        if (column > 0 && row <= lastRow) drawRow(palette, ix, iy + rowOf(row, ih, interlace), column);
+        if (!terminated) skipBlocks();
+    }
+
+    private void drawRow(int[] palette, int ix, int y, int length) {
+        if (y >= height) return;
+        int dst = y * width + ix;
+        int limit = Math.min(length, width - ix);
+        for (int x = 0; x < limit; x++) {
+            int index = indices[x] & 0xFF;
+            if (transparent && index == transparentIndex) continue;
+            canvas[dst + x] = palette[index];
+        }
+    }
+
+    private int[] readPalette(int entries, int[] palette) throws IOException {
+        byte[] rgb = new byte[entries * 3];
+        readFully(rgb, rgb.length);
+        for (int i = 0, j = 0; i < entries; i++) {
+            palette[i] = 0xFF000000 | (rgb[j++] & 0xFF) << 16 | (rgb[j++] & 0xFF) << 8 | (rgb[j++] & 0xFF);
+        }
+        for (int i = entries; i < palette.length; i++) {
+            palette[i] = 0xFF000000;
         }
-        String delayValue = gceNode.getAttribute("delayTime");
-        if (delayValue == null || delayValue.isEmpty()) {
-            return 100;
+        return palette;
+    }
+
+    /** Reads one data sub-block into {@link #block}. Returns 0 at the block terminator and -1 at end of stream. */
+    private int readBlock() throws IOException {
+        int length = in.read();
+        if (length <= 0) return length;
+        int read = 0;
+        while (read < length) {
+            int n = in.read(block, read, length - read);
+            if (n < 0) break;
+            read += n;
         }
+        return read;
+    }
+
+    private void skipBlocks() throws IOException {
+        int length;
         try {
-            int hundredths = Integer.parseInt(delayValue);
-            int ms = hundredths * 10;
-            return ms < 20 ? 100 : ms;
-        } catch (NumberFormatException e) {
-            return 100;
+            while ((length = in.read()) > 0) {
+                skipBytes(length);
+            }
+        } catch (EOFException ignored) {
+            // a truncated last block ends the stream, the next read reports it
         }
     }
 
-    private static NativeImage bufferedImageToNativeImage(BufferedImage buf) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(buf, "png", baos);
-            byte[] bytes = baos.toByteArray();
-            try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes)) {
-                return NativeImage.read(bais);
+    private void skipBytes(int count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException("Truncated GIF");
+                skipped = 1;
             }
+            remaining -= skipped;
         }
     }
 
-    public static class GifFrame {
-        public final NativeImage image;
-        public final int delay; // milliseconds
-
-        public GifFrame(NativeImage image, int delay) {
-            this.image = image;
-            this.delay = delay;
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) throw new EOFException("Truncated GIF");
+            read += n;
         }
     }
+
+    private int readByte() throws IOException {
+        int value = in.read();
+        if (value < 0) throw new EOFException("Truncated GIF");
+        return value;
+    }
+
+    private int readShort() throws IOException {
+        return readByte() | readByte() << 8;
+    }
 }
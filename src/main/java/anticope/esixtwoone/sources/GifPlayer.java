@@ -1,121 +1,353 @@
 package anticope.esixtwoone.sources;
 
+import anticope.esixtwoone.cache.FrameCache;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.texture.NativeImage;
-import net.minecraft.client.texture.NativeImageBackedTexture;
 import net.minecraft.util.Identifier;
 
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.metadata.IIOMetadata;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class GifPlayer {
     private static final boolean DEBUG = true;
 
-    private final Identifier textureId;
-    private final List<NativeImageBackedTexture> frameTextures = new ArrayList<>();
-    private final List<Integer> delays = new ArrayList<>();
+    private final List<Identifier> pageIds = new ArrayList<>();
+    private final List<UploadedTexture> pageTextures = new ArrayList<>();
+    private final int[] delays;
+    private final int[] framePages;
+    private final float[] frameUvs;
     private int currentFrame = 0;
     private long lastUpdateTime = 0L;
     private final MinecraftClient client;
     private final double aspectRatio;
+    private final long textureBytes;
     private boolean paused = false;
-    private final int reductionFactor;
     private static final int MAX_FRAMES = 10000;
     private final String debugId;
+    private final int reduction;
+
+    // Streaming playback for GIFs too long to keep fully decoded
+    private static final long ATLAS_BUDGET = 96L * 1024L * 1024L;
+    private static final int RING_SIZE = 8;
+    private final GifStream stream;
+    private UploadedTexture streamTexture;
+    private int streamDelay;
+
+    /**
+     * Uploads already decoded frames. Must run on the render thread; all decoding happens
+     * beforehand in {@link #decode(byte[], int)}.
+     */
+    public GifPlayer(Decoded decoded, Identifier textureId) {
+        this(decoded, textureId, null);
+    }
 
-    public GifPlayer(InputStream gifStream, Identifier textureId, int reductionFactor) throws Exception {
-        this.textureId = textureId;
+    /**
+     * Allocates the textures and queues the pixel uploads on {@code uploads} instead of doing
+     * them now; the player must not be drawn before that job completes. A null job uploads
+     * everything immediately. Must run on the render thread.
+     */
+    public GifPlayer(Decoded decoded, Identifier textureId, UploadScheduler.Job uploads) {
+        UploadScheduler.Job job = uploads != null ? uploads : new UploadScheduler().create(UploadScheduler.Priority.CURRENT);
         this.client = MinecraftClient.getInstance();
-        this.reductionFactor = Math.max(1, reductionFactor);
-        this.debugId = "GifPlayer-" + System.currentTimeMillis();
+        this.debugId = decoded.debugId;
+        this.aspectRatio = decoded.getAspectRatio();
+        this.reduction = decoded.reduction;
+        this.stream = decoded.stream;
+
+        if (stream != null) {
+            this.delays = new int[0];
+            this.framePages = new int[0];
+            this.frameUvs = new float[0];
+            this.textureBytes = (long) decoded.frameWidth * decoded.frameHeight * 4;
+
+            // one texture, refreshed in place from the ring as playback advances
+            Identifier streamId = Identifier.of(textureId.getNamespace(), textureId.getPath() + "/stream");
+            streamTexture = new UploadedTexture(decoded.frameWidth, decoded.frameHeight);
+            client.getTextureManager().registerTexture(streamId, streamTexture);
+            pageIds.add(streamId);
+            job.then(() -> showNextStreamFrame());
+
+            this.lastUpdateTime = System.currentTimeMillis();
+            if (DEBUG) {
+                System.out.printf("[%s] Streaming at least %d frames through a %d frame ring%n", debugId, decoded.getFrameCount(), RING_SIZE);
+            }
+            if (uploads == null) job.runAll();
+            return;
+        }
+
+        this.textureBytes = decoded.atlas.getByteSize();
+        int frames = decoded.delays.size();
+        this.delays = new int[frames];
+        this.framePages = new int[frames];
+        this.frameUvs = new float[frames * 4];
+        for (int i = 0; i < frames; i++) {
+            delays[i] = decoded.delays.get(i);
+            framePages[i] = decoded.atlas.getPage(i);
+            frameUvs[i * 4] = decoded.atlas.getU1(i);
+            frameUvs[i * 4 + 1] = decoded.atlas.getV1(i);
+            frameUvs[i * 4 + 2] = decoded.atlas.getU2(i);
+            frameUvs[i * 4 + 3] = decoded.atlas.getV2(i);
+        }
+
+        // every page is registered once, frame changes only move the UVs; the job owns and frees the CPU copies
+        List<NativeImage> pages = decoded.atlas.getPages();
+        for (int i = 0; i < pages.size(); i++) {
+            NativeImage page = pages.get(i);
+            Identifier pageId = Identifier.of(textureId.getNamespace(), textureId.getPath() + "/page" + i);
+            UploadedTexture texture = new UploadedTexture(page.getWidth(), page.getHeight());
+            client.getTextureManager().registerTexture(pageId, texture);
+            pageIds.add(pageId);
+            pageTextures.add(texture);
+            job.uploadTiles(page, texture);
+        }
+        pages.clear();
+
+        this.lastUpdateTime = System.currentTimeMillis();
         if (DEBUG) {
-            System.out.printf("[%s] Creating GifPlayer (reduction=%d)%n", debugId, this.reductionFactor);
+            System.out.printf("[%s] Queued %d frames on %d atlas pages for upload%n", debugId, frames, pageIds.size());
+        }
+        if (uploads == null) job.runAll();
+    }
+
+    /**
+     * Decodes and rescales every frame into CPU-side atlas pages, or primes a {@link GifStream}
+     * when the whole animation would not fit the atlas budget. Safe to call from any thread.
+     */
+    public static Decoded decode(byte[] gifData, int reductionFactor) throws IOException {
+        return decode(gifData, reductionFactor, null);
+    }
+
+    /**
+     * Like {@link #decode(byte[], int)}, but reads the frames from {@link FrameCache} when
+     * {@code cacheUrl} was decoded at this reduction before, and stores them there otherwise.
+     * Pass a null URL to bypass the frame cache.
+     */
+    public static Decoded decode(byte[] gifData, int reductionFactor, String cacheUrl) throws IOException {
+        return decode(gifData, reductionFactor, cacheUrl, null);
+    }
+
+    /**
+     * Like {@link #decode(byte[], int, String)}, but gives up between frames with a
+     * {@link java.util.concurrent.CancellationException} once {@code token} is cancelled.
+     */
+    public static Decoded decode(byte[] gifData, int reductionFactor, String cacheUrl, Generation.Token token) throws IOException {
+        return decode(gifData, reductionFactor, cacheUrl, token, null);
+    }
+
+    /**
+     * Like {@link #decode(byte[], int, String, Generation.Token)}; a streamed GIF refills its
+     * ring on {@code streamFills} under {@code token}. A null executor gives each refill its own
+     * virtual thread.
+     */
+    public static Decoded decode(byte[] gifData, int reductionFactor, String cacheUrl, Generation.Token token, Executor streamFills) throws IOException {
+        long start = System.nanoTime();
+        String debugId = "GifPlayer-" + System.currentTimeMillis();
+        GifDecoder decoder = new GifDecoder(new ByteArrayInputStream(gifData));
+        int reduction = fitReduction(decoder.getWidth(), decoder.getHeight(), Math.max(1, reductionFactor));
+        if (DEBUG && reduction != Math.max(1, reductionFactor)) {
+            System.out.printf("[%s] %dx%d frames exceed the %dpx texture limit, decoding at 1/%d%n", debugId,
+                decoder.getWidth(), decoder.getHeight(), GifAtlas.maxFrameSize(), reduction);
         }
 
-        try (ImageInputStream imgStream = ImageIO.createImageInputStream(gifStream)) {
-            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
-            if (!readers.hasNext()) {
-                throw new Exception("No GIF ImageReader found");
+        if (cacheUrl != null) {
+            Decoded cached = loadCached(cacheUrl, reduction, debugId);
+            if (cached != null) {
+                cached.decodeNanos = System.nanoTime() - start;
+                if (DEBUG) {
+                    System.out.printf("[%s] Loaded %d cached frames in %.1fms%n", debugId,
+                        cached.delays.size(), cached.decodeNanos / 1_000_000.0);
+                }
+                return cached;
             }
-            ImageReader reader = readers.next();
-            reader.setInput(imgStream, false, false);
+        }
+
+        int frameW = Math.max(1, decoder.getWidth() / reduction);
+        int frameH = Math.max(1, decoder.getHeight() / reduction);
+        int atlasFrames = (int) Math.min(MAX_FRAMES, ATLAS_BUDGET / ((long) frameW * frameH * 4));
+
+        // the atlas is laid out for an exact count; the walk stops as soon as streaming is certain,
+        // so a GIF of thousands of frames costs no more to size up than one that just misses the budget
+        long countStart = System.nanoTime();
+        int total = GifDecoder.countFrames(gifData, Math.max(atlasFrames, RING_SIZE) + 1);
+        if (DEBUG) {
+            System.out.printf("[%s] Decoding GIF (frames=%d, reduction=%d, counted in %.2fms) on %s%n", debugId, total, reduction,
+                (System.nanoTime() - countStart) / 1_000_000.0, Thread.currentThread().getName());
+        }
 
-            int total = Math.min(reader.getNumImages(true), MAX_FRAMES);
+        if (total == 0 || !decoder.advance()) {
+            throw new IOException("GIF contains no frames");
+        }
+
+        long atlasBytes = (long) frameW * frameH * 4 * total;
+        if (token != null) token.throwIfCancelled();
+        if (total > RING_SIZE && total > atlasFrames) {
+            Executor fills = streamFills != null ? streamFills : fill -> Thread.ofVirtual().name("GifStream-fill").start(fill);
+            GifStream stream = new GifStream(gifData, reduction, frameW, frameH, RING_SIZE, debugId, fills, token);
+            stream.prime();
+            Decoded decoded = new Decoded(debugId, frameW, frameH, null, stream, total);
+            decoded.reduction = reduction;
+            decoded.decodeNanos = System.nanoTime() - start;
             if (DEBUG) {
-                System.out.printf("[%s] Frame count (capped): %d%n", debugId, total);
+                System.out.printf("[%s] At least %d frames would need %.1fMB decoded, streaming instead (primed in %.1fms)%n",
+                    debugId, total, atlasBytes / (1024f * 1024f), decoded.decodeNanos / 1_000_000.0);
             }
+            return decoded;
+        }
 
-            // load first frame to determine aspect ratio
-            NativeImage firstImg = decodeReduced(reader, 0, this.reductionFactor);
-            this.aspectRatio = (double) firstImg.getHeight() / firstImg.getWidth();
-            frameTextures.add(new NativeImageBackedTexture(firstImg));
-            delays.add(getFrameDelay(reader.getImageMetadata(0)));
+        Decoded decoded = new Decoded(debugId, frameW, frameH, new GifAtlas(frameW, frameH, total), null, total);
+        decoded.reduction = reduction;
+        Downscaler scaler = scalerFor(decoder.getWidth(), decoder.getHeight(), reduction);
+        FrameCache.Writer writer = cacheUrl != null ? openWriter(cacheUrl, reduction, frameW, frameH, gifData.length, debugId) : null;
+        try {
+            int[] pixels = decodeReduced(decoder, scaler, debugId);
+            decoded.atlas.setFrame(0, pixels);
+            decoded.delays.add(decoder.getDelay());
+            writer = cacheFrame(writer, pixels, decoder.getDelay(), debugId);
             if (DEBUG) {
                 System.out.printf("[%s] Loaded frame 0 (size=%dx%d, delay=%dms)%n", debugId,
-                    firstImg.getWidth(), firstImg.getHeight(), delays.get(0));
+                    frameW, frameH, decoder.getDelay());
             }
 
-            // load remaining frames
-            for (int i = 1; i < total; i++) {
-                long freeMem = Runtime.getRuntime().freeMemory();
-                if (freeMem < 50L * 1024L * 1024L) {
+            // load remaining frames as they are decoded
+            try {
+                while (decoded.delays.size() < total) {
+                    if (token != null) token.throwIfCancelled();
+                    if (!decoder.advance()) break;
+
+                    int index = decoded.delays.size();
+                    pixels = decodeReduced(decoder, scaler, debugId);
+                    decoded.atlas.setFrame(index, pixels);
+                    decoded.delays.add(decoder.getDelay());
+                    writer = cacheFrame(writer, pixels, decoder.getDelay(), debugId);
                     if (DEBUG) {
-                        System.out.printf("[%s] Low memory (%.1fMB free) — stopping frame load at index %d%n", debugId,
-                            freeMem / (1024f * 1024f), i);
+                        System.out.printf("[%s] Loaded frame %d (size=%dx%d, delay=%dms)%n", debugId,
+                            index, frameW, frameH, decoder.getDelay());
                     }
-                    break;
                 }
-                NativeImage img = decodeReduced(reader, i, this.reductionFactor);
-                frameTextures.add(new NativeImageBackedTexture(img));
-                int delay = getFrameDelay(reader.getImageMetadata(i));
-                delays.add(delay);
+            } catch (IOException e) {
+                // truncated or corrupt tail, keep what decoded cleanly
                 if (DEBUG) {
-                    System.out.printf("[%s] Loaded frame %d (size=%dx%d, delay=%dms)%n", debugId,
-                        i, img.getWidth(), img.getHeight(), delay);
+                    System.out.printf("[%s] Stopped at frame %d: %s%n", debugId, decoded.delays.size(), e.getMessage());
+                }
+            }
+
+            if (writer != null) {
+                try {
+                    writer.commit();
+                } catch (IOException e) {
+                    System.err.printf("[%s] Failed to store decoded frames: %s%n", debugId, e.getMessage());
                 }
             }
+        } catch (RuntimeException e) {
+            decoded.close();
+            throw e;
+        } finally {
+            if (writer != null) writer.close();
+        }
+
+        decoded.decodeNanos = System.nanoTime() - start;
+        if (DEBUG) {
+            System.out.printf("[%s] Finished decoding %d frames in %.1fms%n", debugId,
+                decoded.delays.size(), decoded.decodeNanos / 1_000_000.0);
+        }
+        return decoded;
+    }
+
+    private static Decoded loadCached(String url, int reduction, String debugId) {
+        FrameCache cache = FrameCache.get();
+        FrameCache.Reader reader = cache.open(url, reduction);
+        if (reader == null) return null;
+
+        int width = reader.getWidth();
+        int height = reader.getHeight();
+        int count = reader.getFrameCount();
+        Decoded decoded = new Decoded(debugId, width, height, new GifAtlas(width, height, count), null, count);
+        decoded.fromCache = true;
+        decoded.reduction = reduction;
+        try (reader) {
+            int[] frame = new int[width * height];
+            for (int i = 0; i < count; i++) {
+                reader.readFrame(frame);
+                decoded.atlas.setFrame(i, frame);
+                decoded.delays.add(reader.getDelay(i));
+            }
+            return decoded;
+        } catch (IOException | RuntimeException e) {
+            System.err.printf("[%s] Dropping cached frames for %s: %s%n", debugId, url, e.getMessage());
+            cache.invalidate(reader);
+            decoded.close();
+            return null;
+        }
+    }
+
+    /**
+     * At full size a replay only beats decoding when the stored frames come out smaller than the
+     * GIF itself: 30 full-redraw 480x360 frames store as 4MB of deltas, which inflate slower than
+     * the 1.5MB GIF decodes. Reduced frames are always kept, since a replay also skips the downscale.
+     */
+    private static FrameCache.Writer openWriter(String url, int reduction, int width, int height, long gifBytes, String debugId) {
+        try {
+            return FrameCache.get().create(url, reduction, width, height, reduction > 1 ? Long.MAX_VALUE : gifBytes);
+        } catch (IOException e) {
+            System.err.printf("[%s] Frame cache unavailable: %s%n", debugId, e.getMessage());
+            return null;
+        }
+    }
 
-            reader.dispose();
+    /**
+     * Appends a frame to the cache entry being written, giving up on the entry after a write error
+     * or once it outgrows its limit.
+     */
+    private static FrameCache.Writer cacheFrame(FrameCache.Writer writer, int[] pixels, int delay, String debugId) {
+        if (writer == null) return null;
+        try {
+            writer.addFrame(pixels, delay);
+            if (!writer.isOverLimit()) return writer;
             if (DEBUG) {
-                System.out.printf("[%s] Finished loading %d frames%n", debugId, frameTextures.size());
+                System.out.printf("[%s] Not caching frames, they compress worse than the GIF%n", debugId);
             }
+            writer.close();
+            return null;
+        } catch (IOException e) {
+            System.err.printf("[%s] Failed to store decoded frames: %s%n", debugId, e.getMessage());
+            writer.close();
+            return null;
         }
+    }
 
-        this.lastUpdateTime = System.currentTimeMillis();
-        // register initial texture
-        client.getTextureManager().registerTexture(textureId, frameTextures.get(currentFrame));
+    /** Smallest reduction from {@code requested} up that brings both frame sides within the texture limit. */
+    private static int fitReduction(int width, int height, int requested) {
+        int limit = GifAtlas.maxFrameSize();
+        // side / reduction <= limit holds from side / (limit + 1) + 1 up
+        return Math.max(requested, Math.max(width, height) / (limit + 1) + 1);
     }
 
-    private NativeImage decodeReduced(ImageReader reader, int index, int reduction) throws Exception {
+    /** Returns the current frame, rescaled, as ARGB pixels valid until the next frame is decoded. */
+    static int[] decodeReduced(GifDecoder decoder, Downscaler scaler, String debugId) {
         if (DEBUG) {
-            System.out.printf("[%s] Decoding frame index %d (reduction=%d)%n", debugId, index, reduction);
-        }
-        BufferedImage original = reader.read(index);
-        int newW = original.getWidth() / reduction;
-        int newH = original.getHeight() / reduction;
-        BufferedImage resized = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_ARGB);
-        resized.getGraphics().drawImage(original.getScaledInstance(newW, newH, BufferedImage.SCALE_SMOOTH),
-            0, 0, null);
-
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(resized, "png", baos);
-            byte[] data = baos.toByteArray();
-            try (ByteArrayInputStream bais = new ByteArrayInputStream(data)) {
-                return NativeImage.read(bais);
-            }
+            System.out.printf("[%s] Decoding frame index %d (%dx%d)%n", debugId, decoder.getFrameCount() - 1,
+                scaler != null ? scaler.getTargetWidth() : decoder.getWidth(),
+                scaler != null ? scaler.getTargetHeight() : decoder.getHeight());
+        }
+        if (scaler == null) {
+            return decoder.getCanvas();
         }
+        return scaler.downscale(decoder.getCanvas(), decoder.getWidth());
+    }
+
+    /**
+     * Downscaler shared by every frame of a GIF at {@code reduction}, or null at full size.
+     * Each output pixel averages a {@code reduction x reduction} block; the partial block left
+     * over at the right and bottom edges is dropped, which keeps the reduction an exact box filter.
+     */
+    static Downscaler scalerFor(int width, int height, int reduction) {
+        if (reduction <= 1) return null;
+        int frameW = Math.max(1, width / reduction);
+        int frameH = Math.max(1, height / reduction);
+        return new Downscaler(Math.min(width, frameW * reduction), Math.min(height, frameH * reduction), frameW, frameH);
     }
 
     public void setPaused(boolean paused) {
@@ -127,29 +359,58 @@ public class GifPlayer {
 
     /** Call this each tick/render or appropriate update loop. */
     public void update() {
-        if (paused || frameTextures.isEmpty()) {
+        if (paused) {
+            return;
+        }
+
+        if (stream != null) {
+            long now = System.currentTimeMillis();
+            // if the decoder has fallen behind the current frame simply stays up a little longer
+            if (now - lastUpdateTime >= streamDelay && showNextStreamFrame()) {
+                lastUpdateTime = now;
+            }
+            return;
+        }
+
+        if (delays.length == 0) {
             return;
         }
 
         long now = System.currentTimeMillis();
-        int delay = delays.get(currentFrame);
+        int delay = delays[currentFrame];
         if (now - lastUpdateTime >= delay) {
             int previous = currentFrame;
             currentFrame++;
-            if (currentFrame >= frameTextures.size()) {
+            if (currentFrame >= delays.length) {
                 currentFrame = 0;  // **loop back to first frame**
                 if (DEBUG) {
                     System.out.printf("[%s] Looping back to start (frame %d -> %d)%n", debugId, previous, currentFrame);
                 }
             }
             lastUpdateTime = now;
+        }
+    }
 
-            // register the new texture frame
-            client.getTextureManager().registerTexture(textureId, frameTextures.get(currentFrame));
-            if (DEBUG) {
-                System.out.printf("[%s] Switched to frame %d%n", debugId, currentFrame);
-            }
+    /** Uploads the next decoded ring slot into the stream texture with a sub-image update. */
+    private boolean showNextStreamFrame() {
+        int slot = stream.peek();
+        if (slot < 0) return false;
+
+        streamTexture.bindTexture();
+        stream.getSlot(slot).upload(0, 0, 0, false);
+        streamDelay = stream.getSlotDelay(slot);
+        stream.release();
+        return true;
+    }
+
+    /** Texture page and UV rectangle of the frame that should be on screen. */
+    public FrameRegion getCurrentRegion() {
+        if (stream != null) {
+            return new FrameRegion(pageIds.get(0), 0, 0, 1, 1);
         }
+        int uv = currentFrame * 4;
+        return new FrameRegion(pageIds.get(framePages[currentFrame]),
+            frameUvs[uv], frameUvs[uv + 1], frameUvs[uv + 2], frameUvs[uv + 3]);
     }
 
     public void destroy() {
@@ -160,35 +421,112 @@ public class GifPlayer {
 
         client.execute(() -> {
             int destroyed = 0;
-            for (NativeImageBackedTexture tex : frameTextures) {
+            for (Identifier pageId : pageIds) {
                 try {
-                    if (tex != null && tex.getGlId() != 0) {
-                        tex.close();
+                    if (client.getTextureManager().getTexture(pageId) != null) {
+                        client.getTextureManager().destroyTexture(pageId);
                         destroyed++;
                     }
                 } catch (Exception e) {
-                    System.err.printf("[%s] Error closing texture: %s%n", debugId, e.getMessage());
+                    System.err.printf("[%s] Error destroying atlas page %s: %s%n", debugId, pageId, e.getMessage());
                 }
             }
-            frameTextures.clear();
-
-            if (textureId != null && client.getTextureManager().getTexture(textureId) != null) {
+            for (UploadedTexture tex : pageTextures) {
                 try {
-                    client.getTextureManager().destroyTexture(textureId);
-                    if (DEBUG) {
-                        System.out.printf("[%s] Destroyed main texture %s%n", debugId, textureId);
-                    }
+                    tex.close();
                 } catch (Exception e) {
-                    System.err.printf("[%s] Error destroying main texture: %s%n", debugId, e.getMessage());
+                    System.err.printf("[%s] Error closing texture: %s%n", debugId, e.getMessage());
                 }
             }
+            pageIds.clear();
+            pageTextures.clear();
+            if (streamTexture != null) {
+                streamTexture.close();
+                streamTexture = null;
+            }
+            if (stream != null) {
+                stream.close();
+            }
             if (DEBUG) {
-                System.out.printf("[%s] Cleanup complete — destroyed %d frame textures%n", debugId, destroyed);
+                System.out.printf("[%s] Cleanup complete — destroyed %d atlas pages%n", debugId, destroyed);
             }
         });
     }
 
+    /** Whether the driver dropped any of this player's textures. Render thread only. */
+    public boolean isTextureLost() {
+        if (streamTexture != null && streamTexture.isLost()) return true;
+        for (UploadedTexture texture : pageTextures) {
+            if (texture.isLost()) return true;
+        }
+        return false;
+    }
+
+    /** CPU-side memory still held for playback; only streamed GIFs keep any after upload. */
+    public long getResidentBytes() {
+        return stream != null ? stream.getResidentBytes() : 0;
+    }
+
     public double getAspectRatio() {
         return aspectRatio;
     }
+
+    /** Factor the frames were shrunk by when decoded. */
+    public int getReduction() {
+        return reduction;
+    }
+
+    /** Bytes of texture memory held by the atlas pages or the stream texture. */
+    public long getTextureBytes() {
+        return textureBytes;
+    }
+
+    public record FrameRegion(Identifier texture, float u1, float v1, float u2, float v2) {}
+
+    /** CPU-side result of {@link #decode(byte[], int)}, waiting to be uploaded. */
+    public static class Decoded {
+        private final GifAtlas atlas;
+        private final GifStream stream;
+        private final List<Integer> delays = new ArrayList<>();
+        private final String debugId;
+        private final int frameWidth;
+        private final int frameHeight;
+        private final int totalFrames;
+        private long decodeNanos;
+        private boolean fromCache;
+        private int reduction = 1;
+
+        private Decoded(String debugId, int frameWidth, int frameHeight, GifAtlas atlas, GifStream stream, int totalFrames) {
+            this.debugId = debugId;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.atlas = atlas;
+            this.stream = stream;
+            this.totalFrames = totalFrames;
+        }
+
+        public double getAspectRatio() {
+            return (double) frameHeight / frameWidth;
+        }
+
+        /** For a stream, a lower bound: frames are only counted until streaming is certain. */
+        public int getFrameCount() {
+            return stream != null ? totalFrames : delays.size();
+        }
+
+        public double getDecodeMillis() {
+            return decodeNanos / 1_000_000.0;
+        }
+
+        /** Whether the frames came from {@link FrameCache} rather than the GIF decoder. */
+        public boolean isFromCache() {
+            return fromCache;
+        }
+
+        /** Frees the decoded frames if they are never handed to a {@link GifPlayer}. */
+        public void close() {
+            if (atlas != null) atlas.close();
+            if (stream != null) stream.close();
+        }
+    }
 }
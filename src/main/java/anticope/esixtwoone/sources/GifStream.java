@@ -0,0 +1,149 @@
+package anticope.esixtwoone.sources;
+
+import net.minecraft.client.texture.NativeImage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Decodes a GIF just ahead of the playhead into a fixed ring of reusable frame buffers.
+ * Only the compressed bytes and {@code ringSize} frames are ever resident, however long the GIF is.
+ * Refills run on the executor the stream was given, and stop for good once its token is cancelled.
+ */
+public class GifStream {
+    private final byte[] gifData;
+    private final Executor fills;
+    private final Generation.Token token;
+    private final Downscaler scaler;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final String debugId;
+    private final NativeImage[] slots;
+    private final int[] slotDelays;
+
+    // guarded by this
+    private long produced;
+    private long consumed;
+    private boolean filling;
+    private boolean closed;
+
+    // only touched by whichever thread is filling
+    private GifDecoder decoder;
+
+    GifStream(byte[] gifData, int reduction, int frameWidth, int frameHeight, int ringSize, String debugId,
+              Executor fills, Generation.Token token) throws IOException {
+        this.gifData = gifData;
+        this.fills = fills;
+        this.token = token;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.debugId = debugId;
+        this.slots = new NativeImage[ringSize];
+        this.slotDelays = new int[ringSize];
+        this.decoder = new GifDecoder(new ByteArrayInputStream(gifData));
+        this.scaler = GifPlayer.scalerFor(decoder.getWidth(), decoder.getHeight(), reduction);
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new NativeImage(frameWidth, frameHeight, false);
+        }
+    }
+
+    /** Fills the ring on the calling thread, so the first frames are ready before upload. */
+    void prime() {
+        synchronized (this) {
+            if (filling || closed) return;
+            filling = true;
+        }
+        fill();
+    }
+
+    /** Ring slot holding the next frame, or -1 if the decoder has not caught up yet. */
+    public synchronized int peek() {
+        return consumed < produced ? (int) (consumed % slots.length) : -1;
+    }
+
+    public NativeImage getSlot(int slot) {
+        return slots[slot];
+    }
+
+    public int getSlotDelay(int slot) {
+        return slotDelays[slot];
+    }
+
+    /** Hands the slot returned by {@link #peek()} back to the decoder once it has been uploaded. */
+    public void release() {
+        synchronized (this) {
+            if (consumed < produced) consumed++;
+            if (filling || closed) return;
+            filling = true;
+        }
+        fills.execute(this::fill);
+    }
+
+    private void fill() {
+        try {
+            while (true) {
+                int slot;
+                synchronized (this) {
+                    if (closed || produced - consumed >= slots.length) break;
+                    // a stale query's stream stops competing with the one on screen
+                    if (token != null && token.isCancelled()) break;
+                    slot = (int) (produced % slots.length);
+                }
+
+                int delay = decodeNext(slot);
+                if (delay < 0) break;
+
+                synchronized (this) {
+                    slotDelays[slot] = delay;
+                    produced++;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                filling = false;
+                if (closed) freeSlots();
+            }
+        }
+    }
+
+    /** Decodes the next frame into {@code slot}, looping back to the start at the end of the file. */
+    private int decodeNext(int slot) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                if (decoder.advance()) {
+                    int[] pixels = GifPlayer.decodeReduced(decoder, scaler, debugId);
+                    PixelTransfer.copy(pixels, 0, frameWidth, slots[slot], 0, 0, frameWidth, frameHeight);
+                    return decoder.getDelay();
+                }
+            } catch (IOException e) {
+                // corrupt tail, treat it as the end of the animation
+            }
+
+            if (decoder.getFrameCount() == 0) break;
+            try {
+                decoder = new GifDecoder(new ByteArrayInputStream(gifData));
+            } catch (IOException e) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (!filling) freeSlots();
+    }
+
+    private void freeSlots() {
+        for (NativeImage slot : slots) {
+            slot.close();
+        }
+    }
+
+    /** Native bytes held by the ring plus the compressed source. */
+    public long getResidentBytes() {
+        return (long) frameWidth * frameHeight * 4 * slots.length + gifData.length;
+    }
+}
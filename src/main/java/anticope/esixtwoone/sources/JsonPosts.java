@@ -0,0 +1,104 @@
+package anticope.esixtwoone.sources;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * Helpers for reading post listings straight off the response stream. Sources walk the JSON
+ * with a {@link JsonReader}, keep the handful of fields a {@link Post} needs and skip the rest,
+ * so tags, descriptions and relationships are never materialized.
+ */
+public class JsonPosts {
+    /** Reads one entry of a listing array into a {@link Post}, a {@link Post#skipped} one if it has nothing usable. */
+    public interface Parser {
+        Post read(JsonReader in) throws IOException;
+    }
+
+    /**
+     * The listing at {@code url}, as posts of {@code size}. Entries of the array named
+     * {@code arrayName}, or of the top-level array if it is null, are parsed straight off the
+     * response as they are asked for, so the first post is out before the page has downloaded.
+     * A page the {@link anticope.esixtwoone.cache.ListingCache} has for this URL and size is
+     * read from there instead.
+     */
+    public static PostReader page(String url, Source.Size size, String userAgent, String arrayName, Parser parser, Predicate<Post> accept) throws IOException {
+        ListingPage page = new ListingPage(url, url + "#" + size, userAgent, arrayName, parser, accept);
+        page.start();
+        return page;
+    }
+
+    /** Moves into the listing array: the one named {@code arrayName}, or the top-level one if it is null. */
+    public static boolean enterListing(JsonReader in, String arrayName) throws IOException {
+        if (arrayName != null) return enterArray(in, arrayName);
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return false;
+        }
+        in.beginArray();
+        return true;
+    }
+
+    /** Lower-cased tags separated by single spaces, so equivalent queries share cache entries. */
+    public static String normalizeTags(String filter) {
+        return String.join(" ", filter.trim().toLowerCase().split("\\s+"));
+    }
+
+    /**
+     * Moves into the array named {@code name} of the object at the reader's position, skipping
+     * every other member. Returns false, with the object consumed, if there is no such array.
+     */
+    public static boolean enterArray(JsonReader in, String name) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return false;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals(name) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                return true;
+            }
+            in.skipValue();
+        }
+        in.endObject();
+        return false;
+    }
+
+    /** The next value as a string; null for JSON null or anything that is not a scalar. */
+    public static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) return in.nextString();
+        in.skipValue();
+        return null;
+    }
+
+    /** The next value as a long, accepting numeric strings; -1 if it is missing or not a number. */
+    public static long nextLong(JsonReader in) throws IOException {
+        String value = nextString(in);
+        if (value == null) return -1;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static int nextInt(JsonReader in) throws IOException {
+        long value = nextLong(in);
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /** Lower-case extension of the file {@code url} points at, or null. */
+    public static String extension(String url) {
+        if (url == null) return null;
+        int end = url.indexOf('?');
+        if (end < 0) end = url.length();
+        int dot = url.lastIndexOf('.', end);
+        int slash = url.lastIndexOf('/', end);
+        if (dot < 0 || dot < slash || dot == end - 1) return null;
+        return url.substring(dot + 1, end).toLowerCase();
+    }
+}
@@ -0,0 +1,277 @@
+package anticope.esixtwoone.sources;
+
+import anticope.esixtwoone.cache.ListingCache;
+import com.google.gson.stream.JsonReader;
+import meteordevelopment.meteorclient.utils.network.Http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * A listing page read through the {@link ListingCache}. Posts cached for the page are handed out
+ * first and the response is only requested for what lies past them; a stale page is revalidated
+ * with its ETag. Whatever has been parsed is stored when the page ends or is closed, so a query
+ * left half-way through its first page is still cheap to come back to.
+ *
+ * <p>Once the first post is out, the rest of the response is read into the post list in the
+ * background and the connection closed. Posts are asked for at the HUD's cycle rate, and a body
+ * left idle between them for minutes would be cut off by the server.</p>
+ */
+class ListingPage extends PostReader {
+    private final String url;
+    private final String key;
+    private final String userAgent;
+    private final String arrayName;
+    private final JsonPosts.Parser parser;
+    private final Predicate<Post> accept;
+    private final ListingCache cache = ListingCache.get();
+    private final List<Post> posts = new ArrayList<>();
+    private int served;
+    // raw entries of the response that posts covers, unusable ones included
+    private int entries;
+    private boolean complete;
+    private boolean dirty;
+    private String etag;
+    private long storedAt = System.currentTimeMillis();
+    // reads block on the network, so a lock that does not pin the virtual thread it runs on
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile InputStream body;
+    private volatile JsonReader in;
+    private volatile boolean closed;
+    private boolean draining;
+    // a read of the rest of the page that failed, thrown once its posts have been handed out
+    private IOException failure;
+
+    ListingPage(String url, String key, String userAgent, String arrayName, JsonPosts.Parser parser, Predicate<Post> accept) {
+        this.url = url;
+        this.key = key;
+        this.userAgent = userAgent;
+        this.arrayName = arrayName;
+        this.parser = parser;
+        this.accept = accept;
+    }
+
+    /** Picks up what the cache has for the page, revalidating it if it is stale. */
+    void start() throws IOException {
+        ListingCache.Entry cached = cache.lookup(key);
+        if (cached != null && cached.isFresh(cache.getTtl())) {
+            cache.recordHit();
+            restore(cached);
+            return;
+        }
+        if (cached != null && cached.complete() && cached.etag() != null) {
+            int status;
+            try {
+                status = open(cached.etag());
+            } catch (IOException e) {
+                status = -1;
+            }
+            if (status == 304) {
+                cache.recordRevalidation();
+                cache.put(key, cached.revalidated());
+                restore(cached);
+                return;
+            }
+            if (status != 200) {
+                // better a stale page than none while the site is unreachable
+                restore(cached);
+                return;
+            }
+        }
+        cache.recordMiss();
+    }
+
+    private void restore(ListingCache.Entry cached) {
+        posts.addAll(cached.posts());
+        entries = cached.entries();
+        complete = cached.complete();
+        etag = cached.etag();
+        storedAt = cached.storedAt();
+    }
+
+    @Override
+    protected boolean hasMore() throws IOException {
+        lock.lock();
+        try {
+            return hasMoreLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasMoreLocked() throws IOException {
+        if (served < posts.size()) return true;
+        if (complete) return false;
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw e;
+        }
+        if (closed) throw new IOException("Listing page closed");
+        if (in == null) {
+            open(null);
+            if (in == null) {
+                store();
+                return false;
+            }
+        }
+        if (in.hasNext()) return true;
+        finish();
+        return false;
+    }
+
+    @Override
+    protected Post read() throws IOException {
+        lock.lock();
+        try {
+            if (served < posts.size()) return posts.get(served++);
+            // the drain may have reached the end since hasMore
+            if (complete || in == null) return null;
+            Post post = parse();
+            if (post != null) served++;
+            if (!draining) {
+                draining = true;
+                Thread.ofVirtual().name("ListingPage-drain").start(this::drain);
+            }
+            return post;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Parses the next entry of the response onto the post list. */
+    private Post parse() throws IOException {
+        Post post = parser.read(in);
+        entries++;
+        dirty = true;
+        if (post != null) posts.add(post);
+        return post;
+    }
+
+    /** Reads the rest of the response into the post list, an entry per turn at the lock. */
+    private void drain() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || complete || in == null) return;
+                if (in.hasNext()) {
+                    parse();
+                } else {
+                    finish();
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    failure = e instanceof IOException io ? io : new IOException(e);
+                    closeReader();
+                    store();
+                }
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** The response has no entries left; closes it and stores the whole page. */
+    private void finish() {
+        complete = true;
+        dirty = true;
+        closeReader();
+        store();
+    }
+
+    private void closeReader() {
+        JsonReader reader = in;
+        in = null;
+        body = null;
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    protected boolean accept(Post post) {
+        return accept.test(post);
+    }
+
+    /**
+     * Requests the page, skipping the entries already cached. Returns the status; anything but
+     * a 200 or 304 counts as the end of the listing, and a failed request throws.
+     */
+    private int open(String ifNoneMatch) throws IOException {
+        Http.Request request = Http.get(url);
+        if (userAgent != null) request.header("User-Agent", userAgent);
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        HttpResponse<InputStream> response = request.sendInputStreamResponse();
+        if (response == null || response.body() == null) throw new IOException("Request failed for " + url);
+        body = response.body();
+        // close() may have looked for a body before this one was set
+        if (closed) {
+            body.close();
+            throw new IOException("Listing page closed");
+        }
+
+        int status = response.statusCode();
+        if (status != 200) {
+            response.body().close();
+            if (status != 304) complete = true;
+            return status;
+        }
+
+        JsonReader reader = new JsonReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        try {
+            if (!JsonPosts.enterListing(reader, arrayName)) {
+                reader.close();
+                complete = true;
+                dirty = true;
+                return status;
+            }
+            for (int i = 0; i < entries && reader.hasNext(); i++) {
+                reader.skipValue();
+            }
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        // the entries still to come are from this response, so its ETag describes the page
+        etag = response.headers().firstValue("ETag").orElse(null);
+        if (entries == 0) storedAt = System.currentTimeMillis();
+        in = reader;
+        return status;
+    }
+
+    private void store() {
+        if (!dirty || (!complete && posts.isEmpty())) return;
+        dirty = false;
+        cache.put(key, new ListingCache.Entry(List.copyOf(posts), entries, complete, complete ? etag : null, storedAt));
+    }
+
+    /**
+     * Stops reading; a read blocked on the network fails at once. What was parsed is cached once
+     * that read has let go of the page.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        // the body first: closing the reader would queue behind the read holding its lock
+        InputStream stream = body;
+        if (stream != null) stream.close();
+        lock.lock();
+        try {
+            closeReader();
+            store();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
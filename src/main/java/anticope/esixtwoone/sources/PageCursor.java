@@ -0,0 +1,21 @@
+package anticope.esixtwoone.sources;
+
+/**
+ * Where the next listing page starts. Sources that support it page by post id
+ * ({@code page=b<id>}, everything older than a post), which stays fast at any depth, has no
+ * page cap and is not shifted by new uploads. Everything else falls back to page numbers.
+ */
+public record PageCursor(int page, long beforeId) {
+    public static final PageCursor FIRST = new PageCursor(1, -1);
+
+    /** The value for the {@code page} query parameter. */
+    public String param() {
+        return beforeId >= 0 ? "b" + beforeId : String.valueOf(page);
+    }
+
+    /** The cursor after {@code finished}; below the lowest id it contained when {@code byId}. */
+    public PageCursor next(PostReader finished, boolean byId) {
+        long lowest = finished.getLowestId();
+        return new PageCursor(page + 1, byId && lowest >= 0 ? lowest : -1);
+    }
+}
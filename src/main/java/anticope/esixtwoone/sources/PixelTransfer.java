@@ -0,0 +1,167 @@
+package anticope.esixtwoone.sources;
+
+import net.minecraft.client.texture.NativeImage;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Copies decoded pixels straight into a {@link NativeImage} without going through an
+ * intermediate PNG encode/decode. Output matches what {@link BufferedImage#getRGB} reports.
+ */
+public final class PixelTransfer {
+    private PixelTransfer() {}
+
+    /** Where {@link #copy(BufferedImage, PixelSink)} writes; {@code NativeImage::setColorArgb} fits. */
+    @FunctionalInterface
+    public interface PixelSink {
+        void setArgb(int x, int y, int argb);
+    }
+
+    public static NativeImage toNativeImage(BufferedImage src) {
+        NativeImage image = new NativeImage(src.getWidth(), src.getHeight(), false);
+        try {
+            copy(src, image);
+        } catch (RuntimeException e) {
+            image.close();
+            throw e;
+        }
+        return image;
+    }
+
+    public static NativeImage toNativeImage(int[] argb, int width, int height) {
+        NativeImage image = new NativeImage(width, height, false);
+        copy(argb, 0, width, image, 0, 0, width, height);
+        return image;
+    }
+
+    /** Copies a {@code width x height} block of ARGB pixels into {@code dst} at ({@code dstX}, {@code dstY}). */
+    public static void copy(int[] argb, int offset, int stride, NativeImage dst, int dstX, int dstY, int width, int height) {
+        for (int y = 0; y < height; y++) {
+            int row = offset + y * stride;
+            for (int x = 0; x < width; x++) {
+                dst.setColorArgb(dstX + x, dstY + y, argb[row + x]);
+            }
+        }
+    }
+
+    public static void copy(BufferedImage src, NativeImage dst) {
+        copy(src, dst::setColorArgb);
+    }
+
+    public static void copy(BufferedImage src, PixelSink dst) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        WritableRaster raster = src.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        ColorModel colorModel = src.getColorModel();
+
+        // Sub-rasters and multi-bank buffers are rare from ImageIO; leave them to getRGB.
+        boolean plain = raster.getParent() == null
+            && raster.getSampleModelTranslateX() == 0
+            && raster.getSampleModelTranslateY() == 0
+            && buffer.getNumBanks() == 1;
+
+        if (plain && buffer instanceof DataBufferInt ints
+            && sampleModel instanceof SinglePixelPackedSampleModel packed
+            && colorModel instanceof DirectColorModel direct
+            && !direct.isAlphaPremultiplied()
+            && direct.getColorSpace().isCS_sRGB()
+            && isStandardPacking(direct)) {
+            copyPackedInts(ints.getData(), ints.getOffset(), packed.getScanlineStride(),
+                direct.hasAlpha(), dst, width, height);
+            return;
+        }
+
+        if (plain && buffer instanceof DataBufferByte bytes
+            && sampleModel instanceof ComponentSampleModel component) {
+            byte[] data = bytes.getData();
+            int offset = bytes.getOffset();
+            int pixelStride = component.getPixelStride();
+            int scanlineStride = component.getScanlineStride();
+            int[] bandOffsets = component.getBandOffsets();
+
+            if (colorModel instanceof IndexColorModel indexed && bandOffsets.length == 1) {
+                int[] palette = new int[256];
+                indexed.getRGBs(palette);
+                copyIndexed(data, offset + bandOffsets[0], pixelStride, scanlineStride, palette, dst, width, height);
+                return;
+            }
+
+            if (!colorModel.isAlphaPremultiplied()
+                && colorModel.getColorSpace().isCS_sRGB()
+                && colorModel.getTransferType() == DataBuffer.TYPE_BYTE
+                && (bandOffsets.length == 3 || bandOffsets.length == 4)
+                && colorModel.getNumComponents() == bandOffsets.length) {
+                copyComponents(data, offset, pixelStride, scanlineStride, bandOffsets, dst, width, height);
+                return;
+            }
+        }
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            src.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                dst.setArgb(x, y, row[x]);
+            }
+        }
+    }
+
+    private static boolean isStandardPacking(DirectColorModel model) {
+        return model.getRedMask() == 0x00FF0000
+            && model.getGreenMask() == 0x0000FF00
+            && model.getBlueMask() == 0x000000FF
+            && (!model.hasAlpha() || model.getAlphaMask() == 0xFF000000);
+    }
+
+    private static void copyPackedInts(int[] data, int offset, int stride, boolean hasAlpha,
+                                       PixelSink dst, int width, int height) {
+        int opaque = hasAlpha ? 0 : 0xFF000000;
+        for (int y = 0; y < height; y++) {
+            int row = offset + y * stride;
+            for (int x = 0; x < width; x++) {
+                dst.setArgb(x, y, data[row + x] | opaque);
+            }
+        }
+    }
+
+    private static void copyIndexed(byte[] data, int offset, int pixelStride, int scanlineStride,
+                                    int[] palette, PixelSink dst, int width, int height) {
+        for (int y = 0; y < height; y++) {
+            int pos = offset + y * scanlineStride;
+            for (int x = 0; x < width; x++, pos += pixelStride) {
+                dst.setArgb(x, y, palette[data[pos] & 0xFF]);
+            }
+        }
+    }
+
+    private static void copyComponents(byte[] data, int offset, int pixelStride, int scanlineStride,
+                                       int[] bandOffsets, PixelSink dst, int width, int height) {
+        int r = bandOffsets[0];
+        int g = bandOffsets[1];
+        int b = bandOffsets[2];
+        boolean hasAlpha = bandOffsets.length == 4;
+        int a = hasAlpha ? bandOffsets[3] : 0;
+
+        for (int y = 0; y < height; y++) {
+            int pos = offset + y * scanlineStride;
+            for (int x = 0; x < width; x++, pos += pixelStride) {
+                int alpha = hasAlpha ? data[pos + a] & 0xFF : 0xFF;
+                dst.setArgb(x, y, alpha << 24
+                    | (data[pos + r] & 0xFF) << 16
+                    | (data[pos + g] & 0xFF) << 8
+                    | (data[pos + b] & 0xFF));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package anticope.esixtwoone.sources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The few fields of a listing entry the HUD uses. {@code url} is the rendition for the
+ * requested {@link Source.Size}; dimensions, size and extension describe the original file.
+ * Unknown numbers are -1, unknown strings null. With {@link Source.Size#auto}, {@code variants}
+ * lists every rendition the listing offered for {@link AutoSize} to choose from.
+ */
+public record Post(long id, String url, String md5, int width, int height, long fileSize, String ext, List<Variant> variants) {
+    /** One rendition of a post; {@code bytes} is -1 when the listing does not say. */
+    public record Variant(String url, int width, int height, long bytes) {}
+
+    public Post(long id, String url, String md5, int width, int height, long fileSize, String ext) {
+        this(id, url, md5, width, height, fileSize, ext, List.of());
+    }
+
+    /** A post known only by its URL, for sources without listing metadata. */
+    public static Post ofUrl(String url) {
+        return new Post(-1, url, null, -1, -1, -1, JsonPosts.extension(url));
+    }
+
+    /**
+     * A listing entry with nothing to show for the requested size, such as a post whose file URL
+     * the site withholds. It still carries its id, so paging by id moves past it.
+     */
+    public static Post skipped(long id) {
+        return new Post(id, null, null, -1, -1, -1, null);
+    }
+
+    /** Whether there is something to show, i.e. this is not a {@link #skipped} entry. */
+    public boolean isUsable() {
+        return url != null;
+    }
+
+    /**
+     * A post for {@link Source.Size#auto}, or a {@link #skipped} one without a usable variant.
+     * Until one is picked its URL is the largest variant's.
+     */
+    public static Post withVariants(long id, String md5, int width, int height, long fileSize, String ext, List<Variant> variants) {
+        variants.removeIf(variant -> variant.url() == null || variant.url().isEmpty());
+        if (variants.isEmpty()) return skipped(id);
+        Variant largest = variants.get(0);
+        for (Variant variant : variants) {
+            if ((long) variant.width() * variant.height() > (long) largest.width() * largest.height()) largest = variant;
+        }
+        return new Post(id, largest.url(), md5, width, height, fileSize, ext, List.copyOf(variants));
+    }
+
+    public Post withUrl(String url) {
+        return new Post(id, url, md5, width, height, fileSize, ext, variants);
+    }
+
+    public static List<String> urls(List<Post> posts) {
+        List<String> urls = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            urls.add(post.url());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,252 @@
+package anticope.esixtwoone.sources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The playlist: posts in listing order, addressed by their position since the last
+ * {@link #clear()}. Entries are packed into primitive arrays (id, md5 as two longs and a URL
+ * template) and the URL is rebuilt when asked for, since CDN URLs differ only by the md5 and
+ * its two directory levels. URLs that do not fit a template are kept as they are.
+ *
+ * <p>Entries behind the playhead can be dropped with {@link #evictBefore(int)}; positions are
+ * not reused, so one held across an eviction just reads as gone. Appending from the fetch
+ * thread while the render thread reads is safe.</p>
+ */
+public class PostIndex {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int NO_TEMPLATE = -1;
+
+    /** {@code head [md5[0:2]/md5[2:4]/] middle md5 tail}. */
+    private record Template(String head, boolean dirs, String middle, String tail) {
+        String url(String md5) {
+            StringBuilder url = new StringBuilder(head.length() + middle.length() + tail.length() + 38).append(head);
+            if (dirs) url.append(md5, 0, 2).append('/').append(md5, 2, 4).append('/');
+            return url.append(middle).append(md5).append(tail).toString();
+        }
+    }
+
+    // slot 0 holds position `first`, slots up to `count` are live
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] md5High = new long[INITIAL_CAPACITY];
+    private long[] md5Low = new long[INITIAL_CAPACITY];
+    private short[] templateIds = new short[INITIAL_CAPACITY];
+    private int first;
+    private int count;
+    private final List<Template> templates = new ArrayList<>();
+    private final Map<Template, Short> templateIndex = new HashMap<>();
+    // by position, for URLs without a template, and the other way round for indexOf
+    private final Map<Integer, String> literals = new HashMap<>();
+    private final Map<String, Integer> literalPositions = new HashMap<>();
+    // low half of the md5 to position, for indexOf; the slot confirms the rest
+    private final Map<Long, Integer> positionsByMd5 = new HashMap<>();
+    private long evicted;
+
+    /** Appends {@code post} and returns its position. */
+    public synchronized int add(Post post) {
+        if (count == ids.length) grow();
+        int slot = count++;
+        int position = first + slot;
+        ids[slot] = post.id();
+
+        String md5 = md5Of(post);
+        Template template = md5 != null ? templateOf(post.url(), md5) : null;
+        short id = template != null ? templateId(template) : NO_TEMPLATE;
+        if (id != NO_TEMPLATE) {
+            md5High[slot] = Long.parseUnsignedLong(md5, 0, 16, 16);
+            md5Low[slot] = Long.parseUnsignedLong(md5, 16, 32, 16);
+            positionsByMd5.put(md5Low[slot], position);
+        } else {
+            literals.put(position, post.url());
+            literalPositions.put(post.url(), position);
+        }
+        templateIds[slot] = id;
+        return position;
+    }
+
+    /** The URL at {@code position}, or null if it was evicted or not added yet. */
+    public synchronized String url(int position) {
+        int slot = position - first;
+        if (slot < 0 || slot >= count) return null;
+        short id = templateIds[slot];
+        if (id == NO_TEMPLATE) return literals.get(position);
+        return templates.get(id).url(hex(md5High[slot]) + hex(md5Low[slot]));
+    }
+
+    public synchronized long id(int position) {
+        int slot = position - first;
+        return slot < 0 || slot >= count ? -1 : ids[slot];
+    }
+
+    /** The URL {@code position} lands on when the retained posts are played in a loop. */
+    public synchronized String wrapped(int position) {
+        if (count == 0) return null;
+        return url(first + Math.floorMod(position - first, count));
+    }
+
+    /**
+     * Position of {@code url} among the retained posts, or -1. A URL that looks templated may
+     * still have been kept literally, when the post's md5 field did not match its file name.
+     */
+    public synchronized int indexOf(String url) {
+        String md5 = md5In(url, null);
+        Template template = md5 != null ? templateOf(url, md5) : null;
+        Short id = template != null ? templateIndex.get(template) : null;
+        if (id != null) {
+            Integer position = positionsByMd5.get(Long.parseUnsignedLong(md5, 16, 32, 16));
+            if (position != null) {
+                int slot = position - first;
+                if (templateIds[slot] == id && md5High[slot] == Long.parseUnsignedLong(md5, 0, 16, 16)) return position;
+            }
+        }
+        Integer literal = literalPositions.get(url);
+        return literal != null ? literal : -1;
+    }
+
+    /** Drops every post before {@code position}. */
+    public synchronized void evictBefore(int position) {
+        int drop = Math.min(position - first, count);
+        if (drop <= 0) return;
+        for (int slot = 0; slot < drop; slot++) {
+            // a post listed twice maps to its later position, which stays
+            if (templateIds[slot] != NO_TEMPLATE) {
+                positionsByMd5.remove(md5Low[slot], first + slot);
+            } else {
+                literalPositions.remove(literals.remove(first + slot), first + slot);
+            }
+        }
+        count -= drop;
+        System.arraycopy(ids, drop, ids, 0, count);
+        System.arraycopy(md5High, drop, md5High, 0, count);
+        System.arraycopy(md5Low, drop, md5Low, 0, count);
+        System.arraycopy(templateIds, drop, templateIds, 0, count);
+        first += drop;
+        evicted += drop;
+        // give back what a long listing grew the arrays to
+        int capacity = ids.length;
+        while (capacity > INITIAL_CAPACITY && count < capacity / 4) capacity /= 2;
+        if (capacity != ids.length) resize(capacity);
+    }
+
+    public synchronized void clear() {
+        ids = new long[INITIAL_CAPACITY];
+        md5High = new long[INITIAL_CAPACITY];
+        md5Low = new long[INITIAL_CAPACITY];
+        templateIds = new short[INITIAL_CAPACITY];
+        first = 0;
+        count = 0;
+        templates.clear();
+        templateIndex.clear();
+        literals.clear();
+        literalPositions.clear();
+        positionsByMd5.clear();
+        evicted = 0;
+    }
+
+    /** One past the last position added. */
+    public synchronized int size() {
+        return first + count;
+    }
+
+    /** The first position still held. */
+    public synchronized int first() {
+        return first;
+    }
+
+    public synchronized int retained() {
+        return count;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+
+    /** Rough heap held by the arrays, lookup maps, templates and literal URLs. */
+    public synchronized long getBytes() {
+        long bytes = ids.length * (8L + 8L + 8L + 2L) + positionsByMd5.size() * 64L;
+        for (Template template : templates) {
+            bytes += 2L * (template.head().length() + template.middle().length() + template.tail().length()) + 64;
+        }
+        for (String literal : literals.values()) {
+            bytes += 2L * literal.length() + 128;
+        }
+        return bytes;
+    }
+
+    private void grow() {
+        resize(ids.length * 2);
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        md5High = Arrays.copyOf(md5High, capacity);
+        md5Low = Arrays.copyOf(md5Low, capacity);
+        templateIds = Arrays.copyOf(templateIds, capacity);
+    }
+
+    private short templateId(Template template) {
+        Short id = templateIndex.get(template);
+        if (id != null) return id;
+        if (templates.size() > Short.MAX_VALUE) return NO_TEMPLATE;
+        id = (short) templates.size();
+        templates.add(template);
+        templateIndex.put(template, id);
+        return id;
+    }
+
+    /** The template {@code url} is built from around {@code md5}, or null if rebuilding would not match it. */
+    private static Template templateOf(String url, String md5) {
+        int at = url.lastIndexOf(md5);
+        if (at < 0) return null;
+        int segment = url.lastIndexOf('/', at) + 1;
+        String head = url.substring(0, segment);
+        String dirs = md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/";
+        boolean hasDirs = head.endsWith(dirs);
+        if (hasDirs) head = head.substring(0, head.length() - dirs.length());
+        Template template = new Template(head, hasDirs, url.substring(segment, at), url.substring(at + md5.length()));
+        return template.url(md5).equals(url) ? template : null;
+    }
+
+    /** The lower-case md5 of {@code post}, from its field or its file name. */
+    private static String md5Of(Post post) {
+        return md5In(post.url(), post.md5());
+    }
+
+    private static String md5In(String url, String md5) {
+        if (isMd5(md5)) return md5;
+        if (url == null) return null;
+        // otherwise the first 32 hex digit run in the file name
+        int start = url.lastIndexOf('/') + 1;
+        int run = 0;
+        for (int i = start; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')) {
+                if (++run == 32) return url.substring(i - 31, i + 1);
+            } else {
+                run = 0;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isMd5(String value) {
+        if (value == null || value.length() != 32) return false;
+        for (int i = 0; i < 32; i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+        return true;
+    }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return digits.length() == 16 ? digits : "0".repeat(16 - digits.length()) + digits;
+    }
+}
@@ -0,0 +1,84 @@
+package anticope.esixtwoone.sources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * One listing page, handed out a post at a time as it is parsed. Remembers the lowest post id
+ * it went past, filtered and skipped entries included, so the page after it can be requested by id.
+ */
+public abstract class PostReader implements Closeable {
+    private int read;
+    private long lowestId = Long.MAX_VALUE;
+    private boolean idsKnown = true;
+
+    /** Whether the page has another entry. */
+    protected abstract boolean hasMore() throws IOException;
+
+    /**
+     * The next entry. One with nothing usable, such as no URL for the requested size, is a
+     * {@link Post#skipped} post, or null if it has no id either.
+     */
+    protected abstract Post read() throws IOException;
+
+    /** Whether {@code post} is something the HUD can show. */
+    protected boolean accept(Post post) {
+        return true;
+    }
+
+    /** The next usable post on the page, or null at its end. */
+    public Post next() throws IOException {
+        while (hasMore()) {
+            Post post = read();
+            read++;
+            if (post == null) continue;
+            if (post.id() < 0) {
+                idsKnown = false;
+            } else {
+                lowestId = Math.min(lowestId, post.id());
+            }
+            if (post.isUsable() && accept(post)) return post;
+        }
+        return null;
+    }
+
+    public List<Post> readAll() throws IOException {
+        List<Post> posts = new ArrayList<>();
+        for (Post post = next(); post != null; post = next()) {
+            posts.add(post);
+        }
+        return posts;
+    }
+
+    /** Entries read so far, usable or not. */
+    public int getRead() {
+        return read;
+    }
+
+    /** The lowest post id read so far, or -1 if any entry had none. */
+    public long getLowestId() {
+        return idsKnown && lowestId != Long.MAX_VALUE ? lowestId : -1;
+    }
+
+    @Override
+    public void close() throws IOException {}
+
+    /** A page that is already in memory. */
+    public static PostReader of(List<Post> posts) {
+        Iterator<Post> it = posts.iterator();
+        return new PostReader() {
+            @Override
+            protected boolean hasMore() {
+                return it.hasNext();
+            }
+
+            @Override
+            protected Post read() {
+                return it.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package anticope.esixtwoone.sources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A source's whole listing for one query, pulled a post at a time. The next page is only
+ * requested once the caller asks for a post past the end of the current one, and posts are
+ * handed out as they are parsed, so the first can be shown before its page has fully arrived.
+ * Posts already handed out on this page or the one before are skipped, so one that shifts
+ * across a page boundary while the listing is read comes once. Older pages are forgotten, which
+ * keeps a stream read for hours as small as one that just started.
+ */
+public class PostStream implements Closeable {
+    private final Source source;
+    private final String filter;
+    private final Source.Size size;
+    // keys of the posts handed out from the page being read and the one before it
+    private LongSet seen = new LongSet();
+    private LongSet seenBefore = new LongSet();
+    // held across network reads, so a lock that does not pin the virtual thread it runs on
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile PostReader page;
+    private volatile PageCursor cursor = PageCursor.FIRST;
+    private volatile boolean exhausted;
+    private volatile boolean closed;
+    private volatile int duplicates;
+
+    public PostStream(Source source, String filter, Source.Size size) {
+        this.source = source;
+        this.filter = filter;
+        this.size = size;
+    }
+
+    /**
+     * The next post not handed out before, blocking while its page downloads; null once the
+     * listing has run out. After an error the page is requested again on the next call.
+     */
+    public Post next() throws IOException {
+        lock.lock();
+        try {
+            return nextLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Post nextLocked() throws IOException {
+        while (!exhausted && !closed) {
+            try {
+                if (page == null) {
+                    page = source.openPage(filter, size, cursor);
+                    // close() may have looked for a page before this one was set
+                    if (closed) break;
+                }
+                Post post = page.next();
+                if (post == null) {
+                    finishPage();
+                } else if (!seenBefore.contains(key(post)) && seen.add(key(post))) {
+                    return post;
+                } else {
+                    duplicates++;
+                }
+            } catch (IOException | RuntimeException e) {
+                closePage();
+                throw e;
+            }
+        }
+        closePage();
+        return null;
+    }
+
+    private void finishPage() {
+        // a page with no entries at all is past the end of the listing
+        if (page.getRead() == 0) {
+            exhausted = true;
+        } else {
+            PageCursor next = cursor.next(page, source.supportsIdCursor(filter));
+            // a page that does not move the id cursor would be requested forever
+            if (next.beforeId() >= 0 && next.beforeId() == cursor.beforeId()) exhausted = true;
+            cursor = next;
+        }
+        LongSet finished = seenBefore;
+        seenBefore = seen;
+        seen = finished;
+        seen.clear();
+        closePage();
+    }
+
+    /** The post's id, or for posts without one a hash of the URL; never 0 and the two never collide. */
+    private static long key(Post post) {
+        if (post.id() >= 0) return post.id() + 1;
+        // 64-bit FNV-1a, with the sign bit set to keep it apart from ids
+        long hash = 0xcbf29ce484222325L;
+        String url = post.url();
+        for (int i = 0; i < url.length(); i++) {
+            hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        return hash | Long.MIN_VALUE;
+    }
+
+    private void closePage() {
+        PostReader finished = page;
+        page = null;
+        if (finished == null) return;
+        try {
+            finished.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Ends the stream; a {@link #next()} blocked on the network fails instead of waiting it out. */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        PostReader current = page;
+        if (current != null) current.close();
+    }
+
+    /** Where the page being read, or the next one, starts. */
+    public PageCursor getCursor() {
+        return cursor;
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /** Open-addressing set of non-zero longs, kept as a flat array so a page of keys costs a few KB. */
+    private static class LongSet {
+        private static final int INITIAL_CAPACITY = 512;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int size;
+
+        boolean contains(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) return true;
+            }
+            return false;
+        }
+
+        /** Adds {@code key}; false if it was already there. */
+        boolean add(long key) {
+            if (size * 2 >= keys.length) rehash(keys.length * 2);
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) return false;
+            }
+            keys[i] = key;
+            size++;
+            return true;
+        }
+
+        void clear() {
+            // a page with far more posts than usual should not keep its table
+            if (keys.length > INITIAL_CAPACITY) {
+                keys = new long[INITIAL_CAPACITY];
+            } else {
+                Arrays.fill(keys, 0);
+            }
+            size = 0;
+        }
+
+        private void rehash(int capacity) {
+            long[] old = keys;
+            keys = new long[capacity];
+            int mask = capacity - 1;
+            for (long key : old) {
+                if (key == 0) continue;
+                int i = slot(key, mask);
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = key;
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ mixed >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package anticope.esixtwoone.sources;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of work in flight per key, so concurrent requests for the same thing share one
+ * result instead of each doing the work. Entries disappear once their work finishes; later
+ * requests start afresh and are expected to hit a cache instead.
+ *
+ * <p>Each flight remembers the {@link Generation.Token} it was started under. Once that token is
+ * cancelled the flight is about to fail, so callers from another generation start their own
+ * instead of joining it; the stale one finishes or fails on its own without being shared.</p>
+ */
+public class SingleFlight<K, V> {
+    private record Flight<V>(Generation.Token token, CompletableFuture<V> future) {}
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+
+    /**
+     * Runs {@code work} on the calling thread, or waits for the caller already running it for
+     * {@code key} and returns that result. Failures are shared the same way.
+     */
+    public V execute(K key, Generation.Token token, Callable<V> work) throws Exception {
+        Flight<V> flight = new Flight<>(token, new CompletableFuture<>());
+        Flight<V> existing = claim(key, flight);
+        if (existing != null) {
+            joined.incrementAndGet();
+            try {
+                return existing.future().get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        started.incrementAndGet();
+        try {
+            V value = work.call();
+            flight.future().complete(value);
+            return value;
+        } catch (Throwable t) {
+            flight.future().completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /** Registers asynchronous work for {@code key}; returns false if some is already in flight. */
+    public boolean track(K key, Generation.Token token, CompletableFuture<V> future) {
+        Flight<V> flight = new Flight<>(token, future);
+        if (claim(key, flight) != null) return false;
+        started.incrementAndGet();
+        future.whenComplete((value, error) -> inFlight.remove(key, flight));
+        return true;
+    }
+
+    /** The work in flight for {@code key} that a caller under {@code token} may share, counted as a join, or null. */
+    public CompletableFuture<V> join(K key, Generation.Token token) {
+        Flight<V> existing = inFlight.get(key);
+        if (existing == null || !shareable(existing, token)) return null;
+        joined.incrementAndGet();
+        return existing.future();
+    }
+
+    public boolean isInFlight(K key, Generation.Token token) {
+        Flight<V> existing = inFlight.get(key);
+        return existing != null && shareable(existing, token);
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    /** Requests that shared work already in flight instead of starting their own. */
+    public long getJoined() {
+        return joined.get();
+    }
+
+    /** Installs {@code flight} for {@code key}, or returns the shareable flight already there. */
+    private Flight<V> claim(K key, Flight<V> flight) {
+        while (true) {
+            Flight<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) return null;
+            if (shareable(existing, flight.token())) return existing;
+            // the stale flight keeps running but its own cleanup no longer matches the entry
+            if (inFlight.replace(key, existing, flight)) return null;
+        }
+    }
+
+    private static boolean shareable(Flight<?> flight, Generation.Token token) {
+        return flight.token() == token || flight.token() == null || !flight.token().isCancelled();
+    }
+}
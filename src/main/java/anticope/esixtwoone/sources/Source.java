@@ -1,17 +1,52 @@
 package anticope.esixtwoone.sources;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public interface Source {
-    enum Size { preview, sample, file }
-    enum SourceType { e621, e926, danbooru, gelbooru, nekoslife }
+    /** {@code auto} lets the HUD pick a rendition per post, from its variants. */
+    enum Size { preview, sample, file, auto }
+    enum SourceType {
+        e621, e926, danbooru, gelbooru, nekoslife
+    }
     
     List<String> getPageImageUrls(String filter, Size size, int page);
+
+    /** One listing page as compact posts; sources without listing metadata only fill in the URL. */
+    default List<Post> getPagePosts(String filter, Size size, int page) {
+        List<Post> posts = new ArrayList<>();
+        for (String url : getPageImageUrls(filter, size, page)) {
+            posts.add(Post.ofUrl(url));
+        }
+        return posts;
+    }
+
+    /**
+     * Opens the listing page at {@code cursor} for reading post by post. Sources that cannot page
+     * by post id use its page number; sources without a streaming parser read the whole page.
+     */
+    default PostReader openPage(String filter, Size size, PageCursor cursor) throws IOException {
+        return PostReader.of(getPagePosts(filter, size, cursor.page()));
+    }
+
+    /** Whether results for {@code filter} come newest first, so they can be paged by post id. */
+    default boolean supportsIdCursor(String filter) {
+        return false;
+    }
+
     List<String> getAllImageUrls(String filter, Size size);
     String randomImage(String filter, Size size);
     void reset();
 
+    /** The shared instance for {@code type}; sources hold no per-query state. */
     static Source getSource(SourceType type) {
+        synchronized (SourceInstances.SOURCES) {
+            return SourceInstances.SOURCES.computeIfAbsent(type, Source::create);
+        }
+    }
+
+    private static Source create(SourceType type) {
         switch (type) {
             case e621: return new ESixTwoOne("https://e621.net");
             case e926: return new ESixTwoOne("https://e926.net");
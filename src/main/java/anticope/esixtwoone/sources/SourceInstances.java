@@ -0,0 +1,11 @@
+package anticope.esixtwoone.sources;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/** The shared instances behind {@link Source#getSource}, created on first use. */
+final class SourceInstances {
+    static final Map<Source.SourceType, Source> SOURCES = new EnumMap<>(Source.SourceType.class);
+
+    private SourceInstances() {}
+}
@@ -0,0 +1,151 @@
+package anticope.esixtwoone.sources;
+
+import net.minecraft.client.texture.NativeImage;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Decodes static images held in off-heap memory with stb_image, the decoder {@link NativeImage}
+ * wraps, so neither the encoded file nor the decoded pixels pass through the Java heap.
+ * ImageIO is only used for formats stb_image cannot read. Images are reduced to the size they
+ * are drawn at while decoding, so texture memory follows the HUD size rather than the file.
+ */
+public final class StaticImage {
+    private static final int CHUNK = 64 * 1024;
+    private static final int MAX_ENCODED = 256 * 1024 * 1024;
+
+    private StaticImage() {}
+
+    /**
+     * Reads {@code in} to the end into a direct buffer, presized from {@code sizeHint} when it
+     * is known. The caller owns the result and frees it with {@link MemoryUtil#memFree}.
+     */
+    public static ByteBuffer readDirect(InputStream in, long sizeHint) throws IOException {
+        // one spare byte so a correct hint hits EOF without growing
+        int capacity = sizeHint > 0 && sizeHint < MAX_ENCODED ? (int) sizeHint + 1 : CHUNK;
+        ByteBuffer buffer = MemoryUtil.memAlloc(capacity);
+        try {
+            ReadableByteChannel channel = Channels.newChannel(in);
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    if (buffer.capacity() >= MAX_ENCODED) throw new IOException("Image larger than " + MAX_ENCODED + " bytes");
+                    buffer = MemoryUtil.memRealloc(buffer, Math.min(MAX_ENCODED, buffer.capacity() * 2));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            MemoryUtil.memFree(buffer);
+            throw e;
+        }
+        return buffer.flip();
+    }
+
+    /** A decoded image along with the size of the file it came from. */
+    public record Decoded(NativeImage image, int sourceWidth, int sourceHeight) {
+        public double getAspectRatio() {
+            return (double) sourceHeight / sourceWidth;
+        }
+    }
+
+    /**
+     * Decodes {@code encoded} with stb_image, area-averaged down to fit an element drawn at
+     * {@code displayWidth x displayHeight} ({@code displayHeight <= 0} keeps the aspect ratio).
+     * Returns null if stb_image cannot read the format.
+     */
+    public static Decoded decode(ByteBuffer encoded, double displayWidth, double displayHeight) {
+        ByteBuffer pixels;
+        int width;
+        int height;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+            pixels = STBImage.stbi_load_from_memory(encoded, w, h, channels, 4);
+            if (pixels == null) return null;
+            width = w.get(0);
+            height = h.get(0);
+        }
+
+        try {
+            // stb writes RGBA bytes, which read as little-endian ints are ABGR
+            IntBuffer abgr = pixels.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            int srcWidth = width;
+            Downscaler.RowSource rows = (y, argb) -> {
+                int row = y * srcWidth;
+                for (int x = 0; x < srcWidth; x++) {
+                    int pixel = abgr.get(row + x);
+                    argb[x] = (pixel & 0xFF00FF00) | (pixel & 0xFF) << 16 | (pixel >> 16) & 0xFF;
+                }
+            };
+            return new Decoded(reduce(rows, width, height, displayWidth, displayHeight), width, height);
+        } finally {
+            STBImage.stbi_image_free(pixels);
+        }
+    }
+
+    /** Decodes formats stb_image does not support through ImageIO. */
+    public static Decoded decodeFallback(ByteBuffer encoded, double displayWidth, double displayHeight) throws IOException {
+        BufferedImage decoded = ImageIO.read(new BufferInputStream(encoded.duplicate()));
+        if (decoded == null) {
+            throw new IOException("Unsupported image format");
+        }
+        int width = decoded.getWidth();
+        int height = decoded.getHeight();
+        Downscaler.RowSource rows = (y, argb) -> decoded.getRGB(0, y, width, 1, argb, 0, width);
+        return new Decoded(reduce(rows, width, height, displayWidth, displayHeight), width, height);
+    }
+
+    private static NativeImage reduce(Downscaler.RowSource rows, int width, int height,
+                                      double displayWidth, double displayHeight) {
+        int targetWidth = Downscaler.targetWidth(width, displayWidth);
+        int targetHeight = Downscaler.targetHeight(width, height, targetWidth, displayHeight);
+        if (targetWidth == width && targetHeight == height) {
+            NativeImage image = new NativeImage(width, height, false);
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                rows.readRow(y, row);
+                PixelTransfer.copy(row, 0, width, image, 0, y, width, 1);
+            }
+            return image;
+        }
+        int[] reduced = Downscaler.downscale(rows, width, height, targetWidth, targetHeight);
+        return PixelTransfer.toNativeImage(reduced, targetWidth, targetHeight);
+    }
+
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package anticope.esixtwoone.sources;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Accounts for the exact texture memory the addon holds, per owner (a {@link GifPlayer} or a
+ * static texture), and picks which preloads to drop when a byte budget is exceeded. Sizes come
+ * from what was allocated rather than driver queries, so it behaves the same on every GPU vendor.
+ */
+public class TextureBudget {
+    public enum Role {
+        /** On screen now; never evicted. */
+        CURRENT,
+        /** Decoded ahead of time; evictable. */
+        PRELOAD,
+        /** Shown before and kept for a looping playlist; evicted ahead of any preload. */
+        RECENT
+    }
+
+    private static class Entry {
+        final String label;
+        final long bytes;
+        Role role;
+        long lastUsed;
+
+        Entry(String label, long bytes, Role role) {
+            this.label = label;
+            this.bytes = bytes;
+            this.role = role;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    private final Map<Object, Entry> entries = new IdentityHashMap<>();
+    private long usedBytes;
+    private long evictions;
+
+    public synchronized void track(Object owner, String label, Role role, long bytes) {
+        Entry previous = entries.put(owner, new Entry(label, bytes, role));
+        usedBytes += bytes - (previous != null ? previous.bytes : 0);
+    }
+
+    public synchronized void untrack(Object owner) {
+        Entry entry = entries.remove(owner);
+        if (entry != null) usedBytes -= entry.bytes;
+    }
+
+    /** Moves {@code owner} on screen, which also marks it used; tracks it first if it is not yet. */
+    public synchronized void promote(Object owner, String label, long bytes) {
+        Entry entry = entries.get(owner);
+        if (entry == null) {
+            track(owner, label, Role.CURRENT, bytes);
+            return;
+        }
+        entry.role = Role.CURRENT;
+        entry.lastUsed = System.nanoTime();
+    }
+
+    /**
+     * Returns the recent images and preloads to drop, least useful first, until usage fits
+     * {@code budgetBytes}. Recent images go before preloads; within each, usefulness is how soon
+     * it will be shown ({@code distance} of its label, lower is sooner), then how recently it was
+     * used. Owners stay tracked until {@link #untrack} is called.
+     */
+    public synchronized List<Object> selectEvictions(long budgetBytes, ToIntFunction<String> distance) {
+        List<Object> victims = new ArrayList<>();
+        if (usedBytes <= budgetBytes) return victims;
+
+        List<Map.Entry<Object, Entry>> candidates = new ArrayList<>();
+        for (Map.Entry<Object, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().role != Role.CURRENT) candidates.add(entry);
+        }
+        candidates.sort(Comparator
+            .comparing((Map.Entry<Object, Entry> e) -> e.getValue().role != Role.RECENT)
+            .thenComparing(Comparator.comparingInt((Map.Entry<Object, Entry> e) -> distance.applyAsInt(e.getValue().label)).reversed())
+            .thenComparingLong(e -> e.getValue().lastUsed));
+
+        long remaining = usedBytes;
+        for (Map.Entry<Object, Entry> candidate : candidates) {
+            if (remaining <= budgetBytes) break;
+            victims.add(candidate.getKey());
+            remaining -= candidate.getValue().bytes;
+            evictions++;
+        }
+        return victims;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getCount(Role role) {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.role == role) count++;
+        }
+        return count;
+    }
+}
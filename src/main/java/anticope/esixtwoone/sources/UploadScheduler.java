@@ -0,0 +1,181 @@
+package anticope.esixtwoone.sources;
+
+import net.minecraft.client.texture.AbstractTexture;
+import net.minecraft.client.texture.NativeImage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads texture uploads over frames. Work is queued as jobs of small steps (typically one
+ * row strip of an image each) and {@link #drain(long)} runs steps from the render loop until a
+ * per-frame time budget is spent. Jobs for the image on screen run before preloads.
+ * Everything here is render-thread only.
+ */
+public class UploadScheduler {
+    public enum Priority {
+        CURRENT,
+        PRELOAD
+    }
+
+    // a strip of about this many bytes is uploaded per step
+    private static final int TILE_BYTES = 256 * 1024;
+
+    private final List<Job> jobs = new ArrayList<>();
+    private long lastDrainNanos;
+    private long maxDrainNanos;
+
+    public class Job {
+        private Priority priority;
+        private final ArrayDeque<Runnable> steps = new ArrayDeque<>();
+        private final List<NativeImage> sources = new ArrayList<>();
+        private Runnable onComplete = () -> {};
+        private Runnable onCancel = () -> {};
+        private long workNanos;
+        private boolean done;
+
+        private Job(Priority priority) {
+            this.priority = priority;
+        }
+
+        /** Queues {@code source} for upload into {@code target} in row strips, closing it afterwards. */
+        public Job uploadTiles(NativeImage source, AbstractTexture target) {
+            int width = source.getWidth();
+            int height = source.getHeight();
+            int rows = Math.max(1, TILE_BYTES / (width * 4));
+            sources.add(source);
+            for (int y = 0; y < height; y += rows) {
+                int top = y;
+                int strip = Math.min(rows, height - y);
+                steps.add(() -> {
+                    target.bindTexture();
+                    source.upload(0, 0, top, 0, top, width, strip, false);
+                });
+            }
+            steps.add(() -> {
+                sources.remove(source);
+                source.close();
+            });
+            return this;
+        }
+
+        public Job then(Runnable step) {
+            steps.add(step);
+            return this;
+        }
+
+        /** Runs once every step has; the job's results can be used from here on. */
+        public Job onComplete(Runnable onComplete) {
+            this.onComplete = onComplete;
+            return this;
+        }
+
+        /** Runs instead of {@link #onComplete} if the job is cancelled; should free what the job was filling. */
+        public Job onCancel(Runnable onCancel) {
+            this.onCancel = onCancel;
+            return this;
+        }
+
+        public void setPriority(Priority priority) {
+            this.priority = priority;
+        }
+
+        /** Drops the remaining steps and frees the images still waiting to be uploaded. */
+        public void cancel() {
+            if (done) return;
+            jobs.remove(this);
+            finish(false);
+        }
+
+        /** Runs every remaining step now, ignoring the frame budget. */
+        public void runAll() {
+            while (!done) step();
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        public double getWorkMillis() {
+            return workNanos / 1_000_000.0;
+        }
+
+        private void step() {
+            Runnable step = steps.poll();
+            if (step != null) {
+                long start = System.nanoTime();
+                step.run();
+                workNanos += System.nanoTime() - start;
+            }
+            if (steps.isEmpty()) {
+                jobs.remove(this);
+                finish(true);
+            }
+        }
+
+        private void finish(boolean completed) {
+            done = true;
+            steps.clear();
+            for (NativeImage source : sources) {
+                source.close();
+            }
+            sources.clear();
+            (completed ? onComplete : onCancel).run();
+        }
+    }
+
+    /** Creates a job; it starts draining once {@link #submit(Job)} is called. */
+    public Job create(Priority priority) {
+        return new Job(priority);
+    }
+
+    public void submit(Job job) {
+        if (job.done) return;
+        jobs.add(job);
+    }
+
+    /** Runs queued steps, highest priority first, until {@code budgetNanos} has passed. Always makes progress. */
+    public void drain(long budgetNanos) {
+        long start = System.nanoTime();
+        while (true) {
+            Job next = null;
+            for (Job job : jobs) {
+                if (next == null || job.priority.ordinal() < next.priority.ordinal()) next = job;
+            }
+            if (next == null) break;
+            next.step();
+            if (System.nanoTime() - start >= budgetNanos) break;
+        }
+        lastDrainNanos = System.nanoTime() - start;
+        maxDrainNanos = Math.max(maxDrainNanos, lastDrainNanos);
+    }
+
+    public void cancelAll() {
+        for (Job job : new ArrayList<>(jobs)) {
+            job.cancel();
+        }
+    }
+
+    public void cancelAll(Priority priority) {
+        for (Job job : new ArrayList<>(jobs)) {
+            if (job.priority == priority) job.cancel();
+        }
+    }
+
+    public int getPendingSteps() {
+        int pending = 0;
+        for (Job job : jobs) {
+            pending += job.steps.size();
+        }
+        return pending;
+    }
+
+    public double getLastDrainMillis() {
+        return lastDrainNanos / 1_000_000.0;
+    }
+
+    public double getMaxDrainMillis() {
+        return maxDrainNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,64 @@
+package anticope.esixtwoone.sources;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import org.lwjgl.opengl.GL11;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A texture that frees its {@link NativeImage} as soon as the pixels are on the GPU, so frames
+ * are not held twice, once in native memory and once in VRAM. Nothing is kept to re-upload from;
+ * owners poll {@link #isLost()} and rebuild from the decode caches if the driver drops it.
+ */
+public class UploadedTexture extends NativeImageBackedTexture {
+    private static final AtomicLong releasedBytes = new AtomicLong();
+
+    private final long bytes;
+    private boolean released;
+    private boolean closed;
+
+    /** Uploads {@code image} and frees it. Must run on the render thread. */
+    public UploadedTexture(NativeImage image) {
+        super(image);
+        this.bytes = (long) image.getWidth() * image.getHeight() * 4;
+        release();
+    }
+
+    /** Allocates GPU storage only; contents are uploaded later by the owner. */
+    public UploadedTexture(int width, int height) {
+        super(width, height, false);
+        this.bytes = (long) width * height * 4;
+        release();
+    }
+
+    private void release() {
+        // off the render thread the upload is deferred and still needs the image
+        if (!RenderSystem.isOnRenderThread()) return;
+        setImage(null);
+        released = true;
+        releasedBytes.addAndGet(bytes);
+    }
+
+    /** Whether the GL texture behind this has gone away. Render thread only. */
+    public boolean isLost() {
+        return !closed && !GL11.glIsTexture(getGlId());
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        // the base class only frees the GL name when it still holds an image
+        clearGlId();
+        if (!closed) {
+            closed = true;
+            if (released) releasedBytes.addAndGet(-bytes);
+        }
+    }
+
+    /** Native pixel memory currently not held thanks to dropping images after upload. */
+    public static long getReleasedBytes() {
+        return releasedBytes.get();
+    }
+}
@@ -0,0 +1,203 @@
+package anticope.esixtwoone.sources;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs background work in priority classes, each task on its own virtual thread so blocking
+ * downloads never tie up a shared pool. Every class has a concurrency limit, queued work starts
+ * in class order, and speculative work only starts while nothing the user is waiting for is
+ * queued or running. Long speculative tasks can also step aside mid-way with
+ * {@link #yieldToForeground()}, and a {@link Lane} lets work change class after it was submitted.
+ */
+public class WorkScheduler {
+    public enum Priority {
+        /** The image on screen, or about to be. */
+        VISIBLE,
+        /** The image shown after the current one. */
+        NEXT,
+        /** Listing pages from the source. */
+        PAGE_FETCH,
+        /** Preloads further ahead. */
+        SPECULATIVE;
+
+        boolean isForeground() {
+            return this == VISIBLE || this == NEXT;
+        }
+    }
+
+    /**
+     * An {@link Executor} for one class whose tasks, queued or running, can be moved to another
+     * class later, e.g. a preload the user has just skipped to.
+     */
+    public final class Lane implements Executor {
+        // guarded by the scheduler
+        private Priority priority;
+        private int running;
+
+        private Lane(Priority priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public void execute(Runnable work) {
+            WorkScheduler.this.execute(this, work);
+        }
+
+        /** Moves this lane's queued and running tasks to {@code priority}. */
+        public void setPriority(Priority priority) {
+            synchronized (WorkScheduler.this) {
+                if (this.priority == priority) return;
+                WorkScheduler.this.running.merge(this.priority, -running, Integer::sum);
+                WorkScheduler.this.running.merge(priority, running, Integer::sum);
+                this.priority = priority;
+                dispatch();
+                // a task of this lane waiting in yieldToForeground may now go on
+                WorkScheduler.this.notifyAll();
+            }
+        }
+
+        public Priority getPriority() {
+            synchronized (WorkScheduler.this) {
+                return priority;
+            }
+        }
+    }
+
+    private record Task(Lane lane, Runnable work) {}
+
+    private static final ThreadLocal<Lane> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final Map<Priority, Integer> limits = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer> running = new EnumMap<>(Priority.class);
+    private final List<Task> queued = new ArrayList<>();
+    private final Set<Thread> threads = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean shutdown;
+
+    public WorkScheduler(String name) {
+        this.name = name;
+        for (Priority priority : Priority.values()) {
+            limits.put(priority, 1);
+            running.put(priority, 0);
+        }
+    }
+
+    public synchronized void setLimit(Priority priority, int limit) {
+        limits.put(priority, Math.max(1, limit));
+        dispatch();
+    }
+
+    public void execute(Priority priority, Runnable work) {
+        execute(new Lane(priority), work);
+    }
+
+    private synchronized void execute(Lane lane, Runnable work) {
+        if (shutdown) return;
+        queued.add(new Task(lane, work));
+        dispatch();
+    }
+
+    /** An {@link Executor} view of one class, for {@code CompletableFuture.supplyAsync} and friends. */
+    public Executor executor(Priority priority) {
+        return work -> execute(priority, work);
+    }
+
+    /** Like {@link #executor(Priority)}, but the class can be changed later through the lane. */
+    public Lane lane(Priority priority) {
+        return new Lane(priority);
+    }
+
+    /**
+     * Blocks a speculative task while foreground work is queued or running, so it stops
+     * competing for bandwidth and CPU. Returns at once for foreground tasks, and as soon as
+     * the task's lane is promoted out of the speculative class.
+     */
+    public void yieldToForeground() throws InterruptedException {
+        Lane lane = CURRENT.get();
+        if (lane == null) return;
+        synchronized (this) {
+            while (!shutdown && lane.priority == Priority.SPECULATIVE && hasForegroundWork()) {
+                wait();
+            }
+        }
+    }
+
+    /** Drops queued work and interrupts everything running. */
+    public synchronized void shutdownNow() {
+        shutdown = true;
+        queued.clear();
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        notifyAll();
+    }
+
+    public synchronized int getRunning(Priority priority) {
+        return running.get(priority);
+    }
+
+    public synchronized int getQueued(Priority priority) {
+        int count = 0;
+        for (Task task : queued) {
+            if (task.lane.priority == priority) count++;
+        }
+        return count;
+    }
+
+    private boolean hasForegroundWork() {
+        if (running.get(Priority.VISIBLE) > 0 || running.get(Priority.NEXT) > 0) return true;
+        for (Task task : queued) {
+            if (task.lane.priority.isForeground()) return true;
+        }
+        return false;
+    }
+
+    private void dispatch() {
+        boolean foreground = hasForegroundWork();
+        for (Priority priority : Priority.values()) {
+            if (priority == Priority.SPECULATIVE && foreground) break;
+            Iterator<Task> it = queued.iterator();
+            while (it.hasNext() && running.get(priority) < limits.get(priority)) {
+                Task task = it.next();
+                if (task.lane.priority != priority) continue;
+                it.remove();
+                start(task);
+            }
+        }
+    }
+
+    private void start(Task task) {
+        running.merge(task.lane.priority, 1, Integer::sum);
+        task.lane.running++;
+        Thread thread = Thread.ofVirtual()
+            .name(name + "-" + task.lane.priority.name().toLowerCase())
+            .unstarted(() -> run(task));
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void run(Task task) {
+        CURRENT.set(task.lane);
+        try {
+            task.work.run();
+        } catch (Throwable t) {
+            System.err.printf("[%s] Uncaught error in %s task: %s%n", name, task.lane.getPriority(), t);
+        } finally {
+            synchronized (this) {
+                threads.remove(Thread.currentThread());
+                running.merge(task.lane.priority, -1, Integer::sum);
+                task.lane.running--;
+                dispatch();
+                notifyAll();
+            }
+        }
+    }
+}
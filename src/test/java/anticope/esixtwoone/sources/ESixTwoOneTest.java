@@ -0,0 +1,25 @@
+package anticope.esixtwoone.sources;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ESixTwoOneTest {
+    @Test
+    void streamingReadsTheUrlsTheTreeDid() throws IOException {
+        byte[] page = ListingCorpus.e621Page(40, 1);
+        for (Source.Size size : new Source.Size[]{Source.Size.preview, Source.Size.sample, Source.Size.file}) {
+            assertEquals(ListingCorpus.treeUrls(page, size), Post.urls(ListingCorpus.streamPosts(page, size)), size.name());
+        }
+    }
+
+    @Test
+    void autoKeepsEveryVariant() throws IOException {
+        byte[] page = ListingCorpus.e621Page(40, 2);
+        for (Post post : ListingCorpus.streamPosts(page, Source.Size.auto)) {
+            assertEquals(3, post.variants().size(), "post " + post.id());
+        }
+    }
+}
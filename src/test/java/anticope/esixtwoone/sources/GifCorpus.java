@@ -0,0 +1,258 @@
+package anticope.esixtwoone.sources;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The GIFs checked in under {@code src/test/resources/gif}, each built to hit one path of the
+ * decoder. Run {@link #main} with the resource directory to regenerate them.
+ */
+public final class GifCorpus {
+    public static final String DIRECTORY = "/gif/";
+    /** Files that end part way through a frame; only the frames before the cut are compared. */
+    public static final Map<String, String> TRUNCATED = Map.of("truncated.gif", "disposal-background.gif");
+    /** Files ImageIO would run out of memory on; checked against known pixels instead. */
+    public static final Set<String> HOSTILE = Set.of("huge-descriptor.gif");
+
+    private GifCorpus() {}
+
+    public static Map<String, byte[]> build() {
+        Map<String, byte[]> corpus = new LinkedHashMap<>();
+        corpus.put("disposal-none.gif", disposalNone());
+        corpus.put("disposal-background.gif", disposalBackground());
+        corpus.put("disposal-previous.gif", disposalPrevious());
+        corpus.put("disposal-undefined.gif", disposalUndefined());
+        corpus.put("local-palettes.gif", localPalettes());
+        corpus.put("interlaced.gif", interlaced());
+        corpus.put("clipped.gif", clipped());
+        corpus.put("deferred-clear.gif", deferredClear());
+        corpus.put("short-delays.gif", shortDelays());
+        corpus.put("two-colors.gif", twoColors());
+        corpus.put("oversized-frame.gif", oversizedFrame());
+        corpus.put("huge-descriptor.gif", hugeDescriptor());
+
+        byte[] full = corpus.get("disposal-background.gif");
+        corpus.put("truncated.gif", Arrays.copyOf(full, full.length * 2 / 3));
+        return corpus;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Path.of(args.length > 0 ? args[0] : "src/test/resources/gif");
+        Files.createDirectories(dir);
+        for (Map.Entry<String, byte[]> file : build().entrySet()) {
+            Files.write(dir.resolve(file.getKey()), file.getValue());
+        }
+    }
+
+    /** {@code frames} full-screen 256-color frames of flat runs and noise, for benchmarks. */
+    public static byte[] animation(int width, int height, int frames) {
+        Random random = new Random(frames);
+        GifWriter gif = new GifWriter(width, height, ramp(256)).loop(0);
+        for (int i = 0; i < frames; i++) {
+            gif.frame(new GifWriter.Frame(0, 0, width, height, blobs(width, height, 256, random)).delay(4));
+        }
+        return gif.finish();
+    }
+
+    /**
+     * {@code frames} frames where only a 64x64 square moves over a fixed background, the way
+     * most reaction GIFs change little between frames.
+     */
+    public static byte[] sprite(int width, int height, int frames) {
+        Random random = new Random(frames);
+        byte[] background = blobs(width, height, 256, random);
+        GifWriter gif = new GifWriter(width, height, ramp(256)).loop(0);
+        for (int i = 0; i < frames; i++) {
+            byte[] frame = background.clone();
+            int left = i * 7 % Math.max(1, width - 64);
+            int top = i * 5 % Math.max(1, height - 64);
+            for (int y = top; y < Math.min(height, top + 64); y++) {
+                Arrays.fill(frame, y * width + left, y * width + Math.min(width, left + 64), (byte) (i * 31));
+            }
+            gif.frame(new GifWriter.Frame(0, 0, width, height, frame).delay(4));
+        }
+        return gif.finish();
+    }
+
+    private static byte[] disposalNone() {
+        GifWriter gif = new GifWriter(24, 16, ramp(16)).loop(0);
+        gif.frame(new GifWriter.Frame(0, 0, 24, 16, fill(24, 16, 1)).delay(10));
+        gif.frame(new GifWriter.Frame(3, 2, 8, 6, gradient(8, 6, 16)).delay(10));
+        gif.frame(new GifWriter.Frame(10, 7, 9, 5, gradient(9, 5, 16)).transparent(4).delay(10));
+        return gif.finish();
+    }
+
+    private static byte[] disposalBackground() {
+        GifWriter gif = new GifWriter(24, 16, ramp(16));
+        gif.frame(new GifWriter.Frame(0, 0, 24, 16, gradient(24, 16, 16)).disposal(1).delay(8));
+        gif.frame(new GifWriter.Frame(2, 2, 10, 8, gradient(10, 8, 16)).disposal(2).transparent(3).delay(8));
+        gif.frame(new GifWriter.Frame(6, 4, 12, 9, fill(12, 9, 7)).disposal(2).delay(8));
+        gif.frame(new GifWriter.Frame(1, 1, 20, 12, gradient(20, 12, 16)).transparent(0).delay(8));
+        return gif.finish();
+    }
+
+    private static byte[] disposalPrevious() {
+        GifWriter gif = new GifWriter(20, 20, ramp(16));
+        gif.frame(new GifWriter.Frame(0, 0, 20, 20, gradient(20, 20, 16)).delay(5));
+        gif.frame(new GifWriter.Frame(4, 4, 8, 8, fill(8, 8, 9)).disposal(3).delay(5));
+        gif.frame(new GifWriter.Frame(8, 2, 10, 6, gradient(10, 6, 16)).disposal(3).transparent(2).delay(5));
+        gif.frame(new GifWriter.Frame(0, 10, 20, 10, fill(20, 10, 5)).disposal(3).delay(5));
+        gif.frame(new GifWriter.Frame(5, 5, 3, 3, fill(3, 3, 12)).delay(5));
+        return gif.finish();
+    }
+
+    /** Disposal values 4-7 are reserved and treated as "none". */
+    private static byte[] disposalUndefined() {
+        GifWriter gif = new GifWriter(12, 12, ramp(8));
+        gif.frame(new GifWriter.Frame(0, 0, 12, 12, gradient(12, 12, 8)).disposal(5).delay(10));
+        gif.frame(new GifWriter.Frame(2, 2, 6, 6, fill(6, 6, 3)).disposal(7).delay(10));
+        gif.frame(new GifWriter.Frame(4, 4, 6, 6, fill(6, 6, 6)).noControl());
+        return gif.finish();
+    }
+
+    private static byte[] localPalettes() {
+        GifWriter gif = new GifWriter(16, 16, null).comment("no global table");
+        int[] reds = new int[4];
+        int[] blues = new int[32];
+        for (int i = 0; i < reds.length; i++) reds[i] = i * 0x400000 + 0x3F0000;
+        for (int i = 0; i < blues.length; i++) blues[i] = i * 8;
+        gif.frame(new GifWriter.Frame(0, 0, 16, 16, gradient(16, 16, 4)).palette(reds).delay(10));
+        gif.frame(new GifWriter.Frame(2, 3, 12, 9, gradient(12, 9, 32)).palette(blues).transparent(5).delay(10));
+        return gif.finish();
+    }
+
+    /**
+     * Interlaced frames of heights ImageIO gets right; it misplaces rows of frames 2-4 rows
+     * tall, which {@link #interlacedColumn} covers instead.
+     */
+    private static byte[] interlaced() {
+        GifWriter gif = new GifWriter(13, 19, ramp(64));
+        gif.frame(new GifWriter.Frame(0, 0, 13, 19, gradient(13, 19, 64)).interlaced().delay(10));
+        gif.frame(new GifWriter.Frame(2, 3, 7, 1, gradient(7, 1, 64)).interlaced().delay(10));
+        gif.frame(new GifWriter.Frame(1, 4, 9, 6, gradient(9, 6, 64)).interlaced().delay(10));
+        gif.frame(new GifWriter.Frame(3, 5, 6, 5, gradient(6, 5, 64)).interlaced().transparent(1).delay(10));
+        gif.frame(new GifWriter.Frame(0, 2, 11, 9, gradient(11, 9, 64)).interlaced().disposal(2).delay(10));
+        return gif.finish();
+    }
+
+    /** Frames hanging off the right and bottom edges, and one entirely off screen. */
+    private static byte[] clipped() {
+        GifWriter gif = new GifWriter(16, 12, ramp(16));
+        gif.frame(new GifWriter.Frame(0, 0, 16, 12, fill(16, 12, 2)).delay(10));
+        gif.frame(new GifWriter.Frame(10, 6, 12, 10, gradient(12, 10, 16)).disposal(2).delay(10));
+        gif.frame(new GifWriter.Frame(20, 20, 4, 4, fill(4, 4, 9)).disposal(2).delay(10));
+        gif.frame(new GifWriter.Frame(12, 0, 8, 4, gradient(8, 4, 16)).disposal(3).delay(10));
+        gif.frame(new GifWriter.Frame(0, 9, 5, 5, fill(5, 5, 11)).delay(10));
+        return gif.finish();
+    }
+
+    /** Enough noise to fill the 4096-entry code table, with no clear code afterwards. */
+    private static byte[] deferredClear() {
+        Random random = new Random(4096);
+        GifWriter gif = new GifWriter(96, 80, ramp(256));
+        gif.frame(new GifWriter.Frame(0, 0, 96, 80, noise(96, 80, 256, random)).deferredClear().delay(10));
+        gif.frame(new GifWriter.Frame(8, 8, 64, 48, noise(64, 48, 256, random)).deferredClear().transparent(0).delay(10));
+        gif.frame(new GifWriter.Frame(0, 0, 96, 80, noise(96, 80, 256, random)).delay(10));
+        return gif.finish();
+    }
+
+    /** Delays under 20ms fall back to 100ms. */
+    private static byte[] shortDelays() {
+        GifWriter gif = new GifWriter(8, 8, ramp(4));
+        gif.frame(new GifWriter.Frame(0, 0, 8, 8, fill(8, 8, 1)).delay(0));
+        gif.frame(new GifWriter.Frame(0, 0, 8, 8, fill(8, 8, 2)).delay(1));
+        gif.frame(new GifWriter.Frame(0, 0, 8, 8, fill(8, 8, 3)).delay(2));
+        gif.frame(new GifWriter.Frame(0, 0, 8, 8, fill(8, 8, 0)).delay(250));
+        return gif.finish();
+    }
+
+    /** The smallest palette, which still uses a minimum code size of 2. */
+    private static byte[] twoColors() {
+        GifWriter gif = new GifWriter(17, 9, new int[]{0x000000, 0xFFFFFF});
+        gif.frame(new GifWriter.Frame(0, 0, 17, 9, gradient(17, 9, 2)).delay(10));
+        gif.frame(new GifWriter.Frame(1, 1, 15, 7, fill(15, 7, 1)).transparent(0).delay(10));
+        return gif.finish();
+    }
+
+    /** Frames many times the size of the screen, progressive and interlaced. */
+    private static byte[] oversizedFrame() {
+        GifWriter gif = new GifWriter(16, 12, ramp(64));
+        gif.frame(new GifWriter.Frame(3, 2, 300, 200, gradient(300, 200, 64)).delay(10));
+        gif.frame(new GifWriter.Frame(0, 5, 160, 90, gradient(160, 90, 64)).interlaced().transparent(7).disposal(2).delay(10));
+        gif.frame(new GifWriter.Frame(0, 0, 16, 12, fill(16, 12, 9)).transparent(9).delay(10));
+        return gif.finish();
+    }
+
+    /**
+     * A 1x1 screen whose one frame claims to be 65535x32767 but carries a single pixel, the
+     * shape of a file meant to make decoders allocate the descriptor's 2GB.
+     */
+    private static byte[] hugeDescriptor() {
+        byte[] gif = new GifWriter(1, 1, ramp(4)).frame(new GifWriter.Frame(0, 0, 1, 1, new byte[]{2}).noControl()).finish();
+        // header, screen descriptor and a 4-entry palette, then the image separator and x, y
+        int size = 6 + 7 + 4 * 3 + 1 + 4;
+        gif[size] = (byte) 0xFF;
+        gif[size + 1] = (byte) 0xFF;
+        gif[size + 2] = (byte) 0xFF;
+        gif[size + 3] = 0x7F;
+        return gif;
+    }
+
+    /** A one-pixel-wide frame {@code height} rows tall, each row its own color. */
+    public static byte[] interlacedColumn(int height, boolean interlace) {
+        byte[] rows = new byte[height];
+        for (int y = 0; y < height; y++) rows[y] = (byte) (y + 1);
+        GifWriter.Frame frame = new GifWriter.Frame(0, 0, 1, height, rows);
+        return new GifWriter(1, height, ramp(64)).frame(interlace ? frame.interlaced() : frame).finish();
+    }
+
+    private static int[] ramp(int entries) {
+        int[] palette = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            int v = i * 255 / Math.max(1, entries - 1);
+            palette[i] = v << 16 | (255 - v) << 8 | (v * 7 & 0xFF);
+        }
+        return palette;
+    }
+
+    private static byte[] fill(int width, int height, int index) {
+        byte[] indices = new byte[width * height];
+        Arrays.fill(indices, (byte) index);
+        return indices;
+    }
+
+    private static byte[] gradient(int width, int height, int colors) {
+        byte[] indices = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                indices[y * width + x] = (byte) ((x + y * 3) % colors);
+            }
+        }
+        return indices;
+    }
+
+    private static byte[] noise(int width, int height, int colors, Random random) {
+        byte[] indices = new byte[width * height];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (byte) random.nextInt(colors);
+        }
+        return indices;
+    }
+
+    /** Flat runs broken by noise, closer to real artwork than pure noise. */
+    private static byte[] blobs(int width, int height, int colors, Random random) {
+        byte[] indices = new byte[width * height];
+        int color = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (random.nextInt(12) == 0) color = random.nextInt(colors);
+            indices[i] = (byte) color;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,231 @@
+package anticope.esixtwoone.sources;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes every file of the {@link GifCorpus} with {@link GifDecoder} and compares each
+ * composited frame against ImageIO's frames run through a plain compositor written from the
+ * spec. Disposal 2 restores to transparent, as {@link GifDecoder} does.
+ */
+class GifDecoderTest {
+    private record Frame(int[] argb, int delay) {}
+
+    /** The graphic control extension in effect for one image; a missing one reads as all defaults. */
+    private record Control(int disposal, int transparentIndex, int delay) {
+        static final Control NONE = new Control(0, -1, 0);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> matchesImageIo() {
+        return GifCorpus.build().keySet().stream()
+            .filter(name -> !GifCorpus.TRUNCATED.containsKey(name) && !GifCorpus.HOSTILE.contains(name))
+            .map(name -> DynamicTest.dynamicTest(name, () -> {
+                byte[] data = resource(name);
+                List<Frame> expected = reference(data);
+                List<Frame> actual = decode(data);
+                assertFrames(name, expected, actual, expected.size());
+                assertEquals(expected.size(), actual.size(), name + " frame count");
+                assertEquals(expected.size(), GifDecoder.countFrames(data), name + " countFrames");
+            }));
+    }
+
+    @Test
+    void truncatedKeepsEarlierFrames() throws IOException {
+        for (var entry : GifCorpus.TRUNCATED.entrySet()) {
+            byte[] data = resource(entry.getKey());
+            List<Frame> expected = reference(resource(entry.getValue()));
+            List<Frame> actual = decode(data);
+
+            assertFalse(actual.isEmpty(), entry.getKey());
+            assertTrue(actual.size() <= expected.size(), entry.getKey());
+            // the last frame may be cut part way through its pixels
+            assertFrames(entry.getKey(), expected, actual, actual.size() - 1);
+        }
+    }
+
+    @Test
+    void hugeDescriptorIsClippedToTheScreen() throws IOException {
+        byte[] data = resource("huge-descriptor.gif");
+        List<Frame> frames = decode(data);
+        assertEquals(1, frames.size());
+        // entry 2 of the 4-entry ramp
+        assertArrayEquals(new int[]{0xFFAA55A6}, frames.get(0).argb());
+        assertEquals(1, GifDecoder.countFrames(data));
+    }
+
+    @Test
+    void checkedInCorpusIsCurrent() throws IOException {
+        for (var entry : GifCorpus.build().entrySet()) {
+            assertArrayEquals(entry.getValue(), resource(entry.getKey()), entry.getKey() + " needs regenerating with GifCorpus.main");
+        }
+    }
+
+    @Test
+    void interlacedRowsLandInPlace() throws IOException {
+        for (int height = 1; height <= 20; height++) {
+            Frame progressive = decode(GifCorpus.interlacedColumn(height, false)).get(0);
+            Frame interlaced = decode(GifCorpus.interlacedColumn(height, true)).get(0);
+            assertArrayEquals(progressive.argb(), interlaced.argb(), "height " + height);
+        }
+    }
+
+    @Test
+    void skipMatchesAdvance() throws IOException {
+        byte[] data = resource("deferred-clear.gif");
+        GifDecoder decoder = new GifDecoder(new ByteArrayInputStream(data));
+        assertTrue(decoder.skip());
+        assertTrue(decoder.advance());
+        assertTrue(decoder.advance());
+        assertFalse(decoder.advance());
+        assertEquals(3, decoder.getFrameCount());
+    }
+
+    private static void assertFrames(String name, List<Frame> expected, List<Frame> actual, int frames) {
+        for (int i = 0; i < frames; i++) {
+            assertArrayEquals(expected.get(i).argb(), actual.get(i).argb(), name + " frame " + i);
+            assertEquals(expected.get(i).delay(), actual.get(i).delay(), name + " delay " + i);
+        }
+    }
+
+    private static List<Frame> decode(byte[] data) throws IOException {
+        GifDecoder decoder = new GifDecoder(new ByteArrayInputStream(data));
+        List<Frame> frames = new ArrayList<>();
+        try {
+            while (decoder.advance()) {
+                frames.add(new Frame(decoder.getCanvas().clone(), decoder.getDelay()));
+            }
+        } catch (IOException ignored) {
+            // truncated input; the frames so far stand
+        }
+        return frames;
+    }
+
+    /**
+     * ImageIO's raw frames, composited by the book. Disposal, transparency and delay come from
+     * {@link #controls} since ImageIO's metadata folds the reserved disposal values 4-7 into 0-3.
+     */
+    private static List<Frame> reference(byte[] data) throws IOException {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            reader.setInput(in, false, false);
+            IIOMetadataNode screen = child((IIOMetadataNode) reader.getStreamMetadata().getAsTree("javax_imageio_gif_stream_1.0"), "LogicalScreenDescriptor");
+            int width = Integer.parseInt(screen.getAttribute("logicalScreenWidth"));
+            int height = Integer.parseInt(screen.getAttribute("logicalScreenHeight"));
+
+            List<Control> controls = controls(data);
+            int[] canvas = new int[width * height];
+            List<Frame> frames = new ArrayList<>();
+            int count = reader.getNumImages(true);
+            for (int i = 0; i < count; i++) {
+                BufferedImage image = reader.read(i);
+                IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+                IIOMetadataNode descriptor = child(root, "ImageDescriptor");
+                int x0 = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+                int y0 = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+                Control control = controls.get(i);
+
+                int[] before = control.disposal() == 3 ? canvas.clone() : null;
+                Raster raster = image.getRaster();
+                ColorModel colors = image.getColorModel();
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        int cx = x0 + x, cy = y0 + y;
+                        if (cx >= width || cy >= height) continue;
+                        int index = raster.getSample(x, y, 0);
+                        if (index == control.transparentIndex()) continue;
+                        canvas[cy * width + cx] = 0xFF000000 | colors.getRGB(index);
+                    }
+                }
+                int delay = control.delay() * 10;
+                frames.add(new Frame(canvas.clone(), delay < 20 ? 100 : delay));
+
+                if (control.disposal() == 2) {
+                    for (int y = y0; y < Math.min(height, y0 + image.getHeight()); y++) {
+                        for (int x = x0; x < Math.min(width, x0 + image.getWidth()); x++) {
+                            canvas[y * width + x] = 0;
+                        }
+                    }
+                } else if (before != null) {
+                    canvas = before;
+                }
+            }
+            return frames;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /** Walks the block structure and pairs each image with its graphic control extension. */
+    private static List<Control> controls(byte[] data) {
+        List<Control> controls = new ArrayList<>();
+        int at = 13;
+        if ((data[10] & 0x80) != 0) at += 3 * (2 << (data[10] & 7));
+        Control pending = Control.NONE;
+        while (at < data.length) {
+            int code = data[at++] & 0xFF;
+            if (code == 0x21) {
+                int label = data[at++] & 0xFF;
+                if (label == 0xF9) {
+                    int packed = data[at + 1] & 0xFF;
+                    int delay = (data[at + 2] & 0xFF) | (data[at + 3] & 0xFF) << 8;
+                    int transparentIndex = (packed & 1) != 0 ? data[at + 4] & 0xFF : -1;
+                    pending = new Control(packed >> 2 & 7, transparentIndex, delay);
+                }
+                at = skipBlocks(data, at);
+            } else if (code == 0x2C) {
+                int packed = data[at + 8] & 0xFF;
+                at += 9;
+                if ((packed & 0x80) != 0) at += 3 * (2 << (packed & 7));
+                at = skipBlocks(data, at + 1);
+                controls.add(pending);
+                pending = Control.NONE;
+            } else {
+                break;
+            }
+        }
+        return controls;
+    }
+
+    private static int skipBlocks(byte[] data, int at) {
+        while (at < data.length && data[at] != 0) at += (data[at] & 0xFF) + 1;
+        return at + 1;
+    }
+
+    private static IIOMetadataNode child(IIOMetadataNode node, String name) {
+        for (int i = 0; i < node.getLength(); i++) {
+            if (node.item(i).getNodeName().equals(name)) return (IIOMetadataNode) node.item(i);
+        }
+        return null;
+    }
+
+    private static byte[] resource(String name) {
+        try (InputStream in = GifDecoderTest.class.getResourceAsStream(GifCorpus.DIRECTORY + name)) {
+            if (in == null) throw new IOException("missing corpus file " + name);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package anticope.esixtwoone.sources;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes GIFs byte by byte so tests can produce the odd files encoders rarely emit: any
+ * disposal, frames hanging off the screen, interlacing, local palettes and a code table that
+ * fills up without being cleared.
+ */
+public class GifWriter {
+    private static final int MAX_CODES = 4096;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final int globalColors;
+
+    /** Frame options; the defaults describe a plain full-table, non-interlaced frame. */
+    public static class Frame {
+        int x, y, width, height;
+        byte[] indices;
+        int disposal;
+        int delay;
+        int transparentIndex = -1;
+        int[] localPalette;
+        boolean interlace;
+        boolean deferredClear;
+        boolean control = true;
+
+        public Frame(int x, int y, int width, int height, byte[] indices) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.indices = indices;
+        }
+
+        public Frame disposal(int disposal) {
+            this.disposal = disposal;
+            return this;
+        }
+
+        /** In hundredths of a second, as stored. */
+        public Frame delay(int delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        public Frame transparent(int index) {
+            this.transparentIndex = index;
+            return this;
+        }
+
+        public Frame palette(int[] rgb) {
+            this.localPalette = rgb;
+            return this;
+        }
+
+        public Frame interlaced() {
+            this.interlace = true;
+            return this;
+        }
+
+        /** Keeps emitting codes once the table is full instead of sending a clear code. */
+        public Frame deferredClear() {
+            this.deferredClear = true;
+            return this;
+        }
+
+        /** Leaves out the graphic control extension. */
+        public Frame noControl() {
+            this.control = false;
+            return this;
+        }
+    }
+
+    public GifWriter(int width, int height, int[] globalPalette) {
+        bytes('G', 'I', 'F', '8', '9', 'a');
+        shortLE(width);
+        shortLE(height);
+        globalColors = globalPalette != null ? globalPalette.length : 256;
+        if (globalPalette != null) {
+            out.write(0x80 | 0x70 | sizeBits(globalPalette.length));
+        } else {
+            out.write(0);
+        }
+        out.write(0); // background index
+        out.write(0); // aspect ratio
+        if (globalPalette != null) palette(globalPalette);
+    }
+
+    /** A NETSCAPE looping block, which decoders have to step over. */
+    public GifWriter loop(int count) {
+        bytes(0x21, 0xFF, 11);
+        bytes('N', 'E', 'T', 'S', 'C', 'A', 'P', 'E', '2', '.', '0');
+        bytes(3, 1);
+        shortLE(count);
+        out.write(0);
+        return this;
+    }
+
+    public GifWriter comment(String text) {
+        bytes(0x21, 0xFE);
+        subBlocks(text.getBytes(StandardCharsets.US_ASCII));
+        return this;
+    }
+
+    public GifWriter frame(Frame frame) {
+        if (frame.control) {
+            bytes(0x21, 0xF9, 4);
+            out.write((frame.disposal & 7) << 2 | (frame.transparentIndex >= 0 ? 1 : 0));
+            shortLE(frame.delay);
+            out.write(Math.max(frame.transparentIndex, 0));
+            out.write(0);
+        }
+
+        out.write(0x2C);
+        shortLE(frame.x);
+        shortLE(frame.y);
+        shortLE(frame.width);
+        shortLE(frame.height);
+        int packed = frame.interlace ? 0x40 : 0;
+        if (frame.localPalette != null) packed |= 0x80 | sizeBits(frame.localPalette.length);
+        out.write(packed);
+        if (frame.localPalette != null) palette(frame.localPalette);
+
+        int colors = frame.localPalette != null ? frame.localPalette.length : globalColors;
+        int minCodeSize = Math.max(2, sizeBits(colors) + 1);
+        out.write(minCodeSize);
+        byte[] rows = frame.interlace ? interlace(frame.indices, frame.width, frame.height) : frame.indices;
+        subBlocks(lzw(rows, minCodeSize, frame.deferredClear));
+        return this;
+    }
+
+    public byte[] finish() {
+        out.write(0x3B);
+        return out.toByteArray();
+    }
+
+    private static byte[] interlace(byte[] indices, int width, int height) {
+        byte[] rows = new byte[indices.length];
+        int at = 0;
+        int[][] passes = {{0, 8}, {4, 8}, {2, 4}, {1, 2}};
+        for (int[] pass : passes) {
+            for (int y = pass[0]; y < height; y += pass[1]) {
+                System.arraycopy(indices, y * width, rows, at, width);
+                at += width;
+            }
+        }
+        return rows;
+    }
+
+    /** Variable-width LZW as GIF uses it, with the decoder's one-code lag on width changes. */
+    private static byte[] lzw(byte[] data, int minCodeSize, boolean deferredClear) {
+        BitWriter bits = new BitWriter();
+        int clear = 1 << minCodeSize;
+        int end = clear + 1;
+        // (prefix code << 8 | byte) -> code
+        Map<Integer, Integer> table = new HashMap<>();
+        int next = clear + 2;
+        int codeSize = minCodeSize + 1;
+
+        bits.write(clear, codeSize);
+        if (data.length == 0) {
+            bits.write(end, codeSize);
+            return bits.finish();
+        }
+
+        int prefix = data[0] & 0xFF;
+        for (int i = 1; i < data.length; i++) {
+            int c = data[i] & 0xFF;
+            Integer code = table.get(prefix << 8 | c);
+            if (code != null) {
+                prefix = code;
+                continue;
+            }
+            bits.write(prefix, codeSize);
+            if (next < MAX_CODES) {
+                table.put(prefix << 8 | c, next++);
+                if (next - 1 == 1 << codeSize && codeSize < 12) codeSize++;
+            } else if (!deferredClear) {
+                bits.write(clear, codeSize);
+                table.clear();
+                next = clear + 2;
+                codeSize = minCodeSize + 1;
+            }
+            prefix = c;
+        }
+        bits.write(prefix, codeSize);
+        bits.write(end, codeSize);
+        return bits.finish();
+    }
+
+    private static int sizeBits(int entries) {
+        int bits = 0;
+        while (2 << bits < entries) bits++;
+        return bits;
+    }
+
+    private void palette(int[] rgb) {
+        int entries = 2 << sizeBits(rgb.length);
+        for (int i = 0; i < entries; i++) {
+            int color = i < rgb.length ? rgb[i] : 0;
+            bytes(color >> 16 & 0xFF, color >> 8 & 0xFF, color & 0xFF);
+        }
+    }
+
+    private void subBlocks(byte[] data) {
+        for (int at = 0; at < data.length; at += 255) {
+            int length = Math.min(255, data.length - at);
+            out.write(length);
+            out.write(data, at, length);
+        }
+        out.write(0);
+    }
+
+    private void shortLE(int value) {
+        out.write(value & 0xFF);
+        out.write(value >> 8 & 0xFF);
+    }
+
+    private void bytes(int... values) {
+        for (int value : values) {
+            out.write(value);
+        }
+    }
+
+    private static class BitWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int buffer;
+        private int count;
+
+        void write(int code, int size) {
+            buffer |= code << count;
+            count += size;
+            while (count >= 8) {
+                bytes.write(buffer & 0xFF);
+                buffer >>>= 8;
+                count -= 8;
+            }
+        }
+
+        byte[] finish() {
+            if (count > 0) bytes.write(buffer & 0xFF);
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package anticope.esixtwoone.sources;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic e621 {@code posts.json} pages with every member the API sends, at roughly the size
+ * of the real thing: a 320-post page with tag lists and descriptions comes to about 800KB.
+ */
+public final class ListingCorpus {
+    private static final String[] WORDS = {
+        "anthro", "solo", "smile", "blue_eyes", "fur", "tail", "standing", "looking_at_viewer",
+        "open_mouth", "digital_media_(artwork)", "hi_res", "outside", "sky", "cloud", "grass",
+        "clothing", "shirt", "topwear", "hat", "headgear", "simple_background", "white_background",
+        "canine", "felid", "mammal", "dragon", "scalie", "feral", "duo", "group", "sitting",
+        "holding_object", "text", "english_text", "signature", "2024", "absurd_res", "sketch"
+    };
+    private static final String[] EXTENSIONS = {"png", "jpg", "jpg", "jpg", "gif", "webm"};
+
+    private ListingCorpus() {}
+
+    /** A page of {@code posts} posts, the same for the same {@code seed}. */
+    public static byte[] e621Page(int posts, long seed) {
+        Random random = new Random(seed);
+        StringWriter text = new StringWriter();
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject().name("posts").beginArray();
+            for (int i = 0; i < posts; i++) {
+                e621Post(out, 5_000_000 - i * 3L, random);
+            }
+            out.endArray().endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Posts of an e621 {@code page} as {@link ESixTwoOne} reads them off the stream. */
+    public static List<Post> streamPosts(byte[] page, Source.Size size) throws IOException {
+        ESixTwoOne source = new ESixTwoOne("https://e621.net");
+        List<Post> posts = new ArrayList<>();
+        try (JsonReader in = new JsonReader(new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8))) {
+            if (!JsonPosts.enterListing(in, "posts")) return posts;
+            while (in.hasNext()) {
+                Post post = source.readPost(in, size);
+                if (post != null && post.isUsable()) posts.add(post);
+            }
+        }
+        return posts;
+    }
+
+    /** URLs of an e621 {@code page} the way the sources read them before streaming: from a full Gson tree. */
+    public static List<String> treeUrls(byte[] page, Source.Size size) {
+        JsonObject result = JsonParser.parseReader(new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8)).getAsJsonObject();
+        List<String> urls = new ArrayList<>();
+        JsonArray posts = result.getAsJsonArray("posts");
+        for (JsonElement element : posts) {
+            JsonObject post = element.getAsJsonObject();
+            if (!post.has(size.name())) continue;
+            String url = post.getAsJsonObject(size.name()).get("url").getAsString();
+            if (!url.toLowerCase().endsWith(".webp")) urls.add(url);
+        }
+        return urls;
+    }
+
+    private static void e621Post(JsonWriter out, long id, Random random) throws IOException {
+        String md5 = md5(random);
+        String ext = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+        String path = md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/" + md5;
+        int width = 800 + random.nextInt(3200);
+        int height = 600 + random.nextInt(3200);
+        int sampleWidth = Math.min(width, 850);
+        int sampleHeight = height * sampleWidth / width;
+        int previewWidth = Math.min(width, 150);
+        int previewHeight = height * previewWidth / width;
+
+        out.beginObject();
+        out.name("id").value(id);
+        out.name("created_at").value("2024-03-0" + (1 + random.nextInt(9)) + "T12:34:56.789-05:00");
+        out.name("updated_at").value("2024-05-1" + random.nextInt(10) + "T08:00:00.000-05:00");
+        out.name("file").beginObject()
+            .name("width").value(width)
+            .name("height").value(height)
+            .name("ext").value(ext)
+            .name("size").value(200_000 + random.nextInt(8_000_000))
+            .name("md5").value(md5)
+            .name("url").value("https://static1.e621.net/data/" + path + "." + ext)
+            .endObject();
+        out.name("preview").beginObject()
+            .name("width").value(previewWidth)
+            .name("height").value(previewHeight)
+            .name("url").value("https://static1.e621.net/data/preview/" + path + ".jpg")
+            .name("alt").value("https://static1.e621.net/data/preview/" + path + ".webp")
+            .endObject();
+        out.name("sample").beginObject()
+            .name("has").value(width > 850)
+            .name("height").value(sampleHeight)
+            .name("width").value(sampleWidth)
+            .name("url").value("https://static1.e621.net/data/sample/" + path + ".jpg")
+            .name("alt").value("https://static1.e621.net/data/sample/" + path + ".webp")
+            .name("alternates").beginObject().endObject()
+            .endObject();
+        out.name("score").beginObject()
+            .name("up").value(random.nextInt(900))
+            .name("down").value(-random.nextInt(40))
+            .name("total").value(random.nextInt(860))
+            .endObject();
+        out.name("tags").beginObject();
+        for (String group : new String[]{"general", "artist", "contributor", "copyright", "character", "species", "invalid", "meta", "lore"}) {
+            out.name(group).beginArray();
+            int count = group.equals("general") ? 20 + random.nextInt(60) : random.nextInt(4);
+            for (int i = 0; i < count; i++) out.value(WORDS[random.nextInt(WORDS.length)]);
+            out.endArray();
+        }
+        out.endObject();
+        out.name("locked_tags").beginArray().endArray();
+        out.name("change_seq").value(60_000_000 + random.nextInt(1_000_000));
+        out.name("flags").beginObject()
+            .name("pending").value(false)
+            .name("flagged").value(false)
+            .name("note_locked").value(false)
+            .name("status_locked").value(false)
+            .name("rating_locked").value(false)
+            .name("deleted").value(false)
+            .endObject();
+        out.name("rating").value(random.nextBoolean() ? "s" : "q");
+        out.name("fav_count").value(random.nextInt(2000));
+        out.name("sources").beginArray()
+            .value("https://www.furaffinity.net/view/" + random.nextInt(60_000_000) + "/")
+            .value("https://twitter.com/artist/status/" + random.nextLong())
+            .endArray();
+        out.name("pools").beginArray().endArray();
+        out.name("relationships").beginObject()
+            .name("parent_id").nullValue()
+            .name("has_children").value(false)
+            .name("has_active_children").value(false)
+            .name("children").beginArray().endArray()
+            .endObject();
+        out.name("approver_id").value(100_000 + random.nextInt(900_000));
+        out.name("uploader_id").value(100_000 + random.nextInt(900_000));
+        StringBuilder description = new StringBuilder();
+        int words = random.nextInt(120);
+        for (int i = 0; i < words; i++) description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        out.name("description").value(description.toString().trim());
+        out.name("comment_count").value(random.nextInt(30));
+        out.name("is_favorited").value(false);
+        out.name("has_notes").value(false);
+        out.name("duration").nullValue();
+        out.endObject();
+    }
+
+    private static String md5(Random random) {
+        StringBuilder hex = new StringBuilder(32);
+        for (int i = 0; i < 32; i++) hex.append(Character.forDigit(random.nextInt(16), 16));
+        return hex.toString();
+    }
+}
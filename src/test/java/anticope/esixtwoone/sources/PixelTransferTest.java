@@ -0,0 +1,133 @@
+package anticope.esixtwoone.sources;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The raster copy has to produce the same ARGB as the PNG round trip it replaced: encode the
+ * decoded image as PNG, read it back and take {@link BufferedImage#getRGB}.
+ */
+class PixelTransferTest {
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    @Test
+    void indexedGif() throws IOException {
+        BufferedImage decoded = decode(encode(pattern(BufferedImage.TYPE_BYTE_INDEXED), "gif"));
+        assertEquals(BufferedImage.TYPE_BYTE_INDEXED, decoded.getType());
+        assertMatchesRoundTrip(decoded);
+    }
+
+    @Test
+    void transparentIndexedGif() throws IOException {
+        BufferedImage decoded = decode(encode(transparentIndexed(), "gif"));
+        assertEquals(BufferedImage.TYPE_BYTE_INDEXED, decoded.getType());
+        assertMatchesRoundTrip(decoded);
+    }
+
+    @Test
+    void alphaPng() throws IOException {
+        BufferedImage decoded = decode(encode(pattern(BufferedImage.TYPE_INT_ARGB), "png"));
+        assertEquals(BufferedImage.TYPE_4BYTE_ABGR, decoded.getType());
+        assertMatchesRoundTrip(decoded);
+    }
+
+    @Test
+    void opaqueJpeg() throws IOException {
+        BufferedImage decoded = decode(encode(pattern(BufferedImage.TYPE_INT_RGB), "jpg"));
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, decoded.getType());
+        assertMatchesRoundTrip(decoded);
+    }
+
+    @Test
+    void packedInts() throws IOException {
+        assertMatchesRoundTrip(pattern(BufferedImage.TYPE_INT_ARGB));
+
+        // the unused top byte of an RGB pixel can hold anything, and must still come out opaque
+        BufferedImage rgb = pattern(BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = data[i] & 0x00FFFFFF | (i & 1) << 24;
+        }
+        assertMatchesRoundTrip(rgb);
+    }
+
+    @Test
+    void subImageFallsBackToGetRgb() throws IOException {
+        assertMatchesRoundTrip(pattern(BufferedImage.TYPE_INT_ARGB).getSubimage(5, 3, 20, 11));
+    }
+
+    private static void assertMatchesRoundTrip(BufferedImage decoded) throws IOException {
+        int width = decoded.getWidth();
+        int height = decoded.getHeight();
+
+        BufferedImage roundTrip = decode(encode(decoded, "png"));
+        int[] expected = roundTrip.getRGB(0, 0, width, height, null, 0, width);
+
+        int[] actual = new int[width * height];
+        PixelTransfer.copy(decoded, (x, y, argb) -> actual[y * width + x] = argb);
+        assertArrayEquals(expected, actual);
+    }
+
+    /** Gradients with a few translucent and fully transparent areas. */
+    private static BufferedImage pattern(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Graphics2D g = image.createGraphics();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                g.setColor(new Color(x * 255 / WIDTH, y * 255 / HEIGHT, (x ^ y) * 7 & 0xFF, 255));
+                g.fillRect(x, y, 1, 1);
+            }
+        }
+        g.dispose();
+        if (image.getColorModel().hasAlpha()) {
+            for (int y = 0; y < HEIGHT; y++) {
+                image.setRGB(0, y, 0x00123456);
+                image.setRGB(1, y, 0x80FF8000 | y);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage transparentIndexed() {
+        // a full palette; ImageIO reads smaller ones back as packed TYPE_BYTE_BINARY
+        byte[] r = new byte[256];
+        byte[] g = new byte[256];
+        byte[] b = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            r[i] = (byte) i;
+            g[i] = (byte) (255 - i);
+            b[i] = (byte) (i * 5);
+        }
+        IndexColorModel palette = new IndexColorModel(8, 256, r, g, b, 3);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_INDEXED, palette);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.getRaster().setSample(x, y, 0, (x * 7 + y) % 256);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) throw new IOException("no " + format + " writer");
+        return out.toByteArray();
+    }
+
+    private static BufferedImage decode(byte[] data) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,49 @@
+package anticope.esixtwoone.sources;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostIndexTest {
+    private static final String MD5_A = "0123456789abcdef0123456789abcdef";
+    private static final String MD5_B = "fedcba9876543210fedcba9876543210";
+    private static final String MD5_C = "00112233445566778899aabbccddeeff";
+
+    private static String e621(String md5) {
+        return "https://static1.e621.net/data/sample/" + md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/" + md5 + ".jpg";
+    }
+
+    @Test
+    void templatedUrlsRoundTrip() {
+        PostIndex index = new PostIndex();
+        index.add(new Post(1, e621(MD5_A), MD5_A, -1, -1, -1, "jpg"));
+        index.add(new Post(2, e621(MD5_B), MD5_B, -1, -1, -1, "jpg"));
+        assertEquals(e621(MD5_B), index.url(1));
+        assertEquals(1, index.indexOf(e621(MD5_B)));
+        assertEquals(-1, index.indexOf(e621(MD5_C)));
+    }
+
+    @Test
+    void findsLiteralThatLooksTemplated() {
+        PostIndex index = new PostIndex();
+        index.add(new Post(1, e621(MD5_A), MD5_A, -1, -1, -1, "jpg"));
+        // the md5 field does not match the file name, so this one is kept literally
+        index.add(new Post(2, e621(MD5_B), MD5_C, -1, -1, -1, "jpg"));
+        assertEquals(e621(MD5_B), index.url(1));
+        assertEquals(1, index.indexOf(e621(MD5_B)));
+    }
+
+    @Test
+    void evictionDropsLookups() {
+        PostIndex index = new PostIndex();
+        index.add(new Post(1, e621(MD5_A), MD5_A, -1, -1, -1, "jpg"));
+        index.add(Post.ofUrl("https://nekos.life/image/cat.png"));
+        index.add(new Post(3, e621(MD5_A), MD5_A, -1, -1, -1, "jpg"));
+        index.evictBefore(1);
+        // listed twice, so still found at its later position
+        assertEquals(2, index.indexOf(e621(MD5_A)));
+        index.evictBefore(3);
+        assertEquals(-1, index.indexOf(e621(MD5_A)));
+        assertEquals(-1, index.indexOf("https://nekos.life/image/cat.png"));
+    }
+}
@@ -0,0 +1,124 @@
+package anticope.esixtwoone.sources;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostStreamTest {
+    /** A listing of fixed pages of post ids; ids below 0 are posts known only by their URL. */
+    private static Source listing(long[]... pages) {
+        return new Source() {
+            @Override
+            public PostReader openPage(String filter, Size size, PageCursor cursor) {
+                List<Post> posts = new ArrayList<>();
+                if (cursor.page() <= pages.length) {
+                    for (long id : pages[cursor.page() - 1]) {
+                        posts.add(id >= 0 ? new Post(id, "https://example.net/" + id + ".png", null, -1, -1, -1, "png")
+                            : Post.ofUrl("https://example.net/anon" + -id + ".png"));
+                    }
+                }
+                return PostReader.of(posts);
+            }
+
+            @Override
+            public List<String> getPageImageUrls(String filter, Size size, int page) {
+                return List.of();
+            }
+
+            @Override
+            public List<String> getAllImageUrls(String filter, Size size) {
+                return List.of();
+            }
+
+            @Override
+            public String randomImage(String filter, Size size) {
+                return null;
+            }
+
+            @Override
+            public void reset() {}
+        };
+    }
+
+    /**
+     * A newest-first listing of {@code ids} that pages by id, {@code pageSize} at a time; the
+     * {@code unusable} ones have nothing to show. Every page requested is logged to {@code requests}.
+     */
+    private static Source idListing(int pageSize, long[] ids, Set<Long> unusable, List<String> requests) {
+        return new Source() {
+            @Override
+            public PostReader openPage(String filter, Size size, PageCursor cursor) {
+                requests.add(cursor.param());
+                List<Post> posts = new ArrayList<>();
+                int skip = cursor.beforeId() >= 0 ? 0 : (cursor.page() - 1) * pageSize;
+                for (long id : ids) {
+                    if (cursor.beforeId() >= 0 && id >= cursor.beforeId()) continue;
+                    if (skip-- > 0) continue;
+                    if (posts.size() == pageSize) break;
+                    posts.add(unusable.contains(id) ? Post.skipped(id) : new Post(id, "https://example.net/" + id + ".png", null, -1, -1, -1, "png"));
+                }
+                return PostReader.of(posts);
+            }
+
+            @Override
+            public boolean supportsIdCursor(String filter) {
+                return true;
+            }
+
+            @Override
+            public List<String> getPageImageUrls(String filter, Size size, int page) {
+                return List.of();
+            }
+
+            @Override
+            public List<String> getAllImageUrls(String filter, Size size) {
+                return List.of();
+            }
+
+            @Override
+            public String randomImage(String filter, Size size) {
+                return null;
+            }
+
+            @Override
+            public void reset() {}
+        };
+    }
+
+    private static List<String> drain(PostStream stream) throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (Post post = stream.next(); post != null; post = stream.next()) urls.add(post.url());
+        return urls;
+    }
+
+    @Test
+    void skipsPostsRepeatedFromThePageBefore() throws IOException {
+        PostStream stream = new PostStream(listing(new long[]{9, 8, 7}, new long[]{7, 6, -1}, new long[]{-1, 5}), "", Source.Size.file);
+        List<String> urls = drain(stream);
+        assertEquals(List.of(
+            "https://example.net/9.png", "https://example.net/8.png", "https://example.net/7.png",
+            "https://example.net/6.png", "https://example.net/anon1.png", "https://example.net/5.png"), urls);
+        assertEquals(2, stream.getDuplicates());
+    }
+
+    @Test
+    void forgetsPagesOlderThanThePreviousOne() throws IOException {
+        PostStream stream = new PostStream(listing(new long[]{3}, new long[]{2}, new long[]{3}), "", Source.Size.file);
+        assertEquals(3, drain(stream).size());
+    }
+
+    @Test
+    void pagesByIdPastAPageOfUnusablePosts() throws IOException {
+        List<String> requests = new ArrayList<>();
+        PostStream stream = new PostStream(idListing(3, new long[]{9, 8, 7, 6, 5, 4, 3, 2, 1}, Set.of(6L, 5L, 4L), requests), "", Source.Size.file);
+        assertEquals(List.of(
+            "https://example.net/9.png", "https://example.net/8.png", "https://example.net/7.png",
+            "https://example.net/3.png", "https://example.net/2.png", "https://example.net/1.png"), drain(stream));
+        assertEquals(List.of("1", "b7", "b4", "b1"), requests);
+    }
+}
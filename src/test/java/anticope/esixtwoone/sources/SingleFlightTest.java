@@ -0,0 +1,73 @@
+package anticope.esixtwoone.sources;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+    @Test
+    void sameGenerationShares() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        Generation.Token token = new Generation().current();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return flights.execute("a", token, () -> {
+                    calls.incrementAndGet();
+                    running.countDown();
+                    release.await();
+                    return 1;
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        running.await();
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return flights.execute("a", token, calls::incrementAndGet);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (flights.getJoined() == 0) Thread.onSpinWait();
+        release.countDown();
+
+        assertEquals(1, first.get());
+        assertEquals(1, second.get());
+        assertEquals(1, calls.get());
+        assertFalse(flights.isInFlight("a", token));
+    }
+
+    @Test
+    void cancelledGenerationIsNotShared() {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        Generation generation = new Generation();
+        Generation.Token old = generation.current();
+        CompletableFuture<Integer> stale = new CompletableFuture<>();
+        assertTrue(flights.track("a", old, stale));
+        assertSame(stale, flights.join("a", old));
+
+        Generation.Token current = generation.advance();
+        assertFalse(flights.isInFlight("a", current));
+        assertNull(flights.join("a", current));
+
+        CompletableFuture<Integer> fresh = new CompletableFuture<>();
+        assertTrue(flights.track("a", current, fresh));
+        // the stale flight finishing must not drop the one that replaced it
+        stale.complete(0);
+        assertSame(fresh, flights.join("a", old));
+        assertSame(fresh, flights.join("a", current));
+    }
+}